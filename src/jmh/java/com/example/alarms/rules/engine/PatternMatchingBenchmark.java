@@ -0,0 +1,94 @@
+package com.example.alarms.rules.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Substring against RE2 regex matching of a single condition on large message bodies.
+ * The pattern is not in the body, so every match scans the whole input.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PatternMatchingBenchmark {
+
+    private static final long BUDGET_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    @Param({"65536", "1048576"})
+    private int bodySize;
+
+    private String body;
+    private String backtrackingBody;
+    private Condition substring;
+    private Condition substringCaseSensitive;
+    private Condition regex;
+    private Condition backtrackingRegex;
+
+    @Setup
+    public void setup() {
+        StringBuilder text = new StringBuilder(bodySize);
+        String line = "Disk usage on host srv-app-01 is at 71 percent, no action required.\n";
+        while (text.length() < bodySize) {
+            text.append(line);
+        }
+        body = text.substring(0, bodySize);
+        backtrackingBody = "a".repeat(bodySize - 1) + "!";
+
+        substring = new ContainsCondition(MessageView.BODY, "INC000123", false);
+        substringCaseSensitive = new ContainsCondition(MessageView.BODY, "INC000123", true);
+        regex = new RegexCondition(MessageView.BODY, "INC\\d{6}", false);
+        // catastrophic for a backtracking engine, linear for RE2
+        backtrackingRegex = new RegexCondition(MessageView.BODY, "(a+)+$", true);
+    }
+
+    @Benchmark
+    public boolean substringIgnoreCase() {
+        return context(body).test(substring);
+    }
+
+    @Benchmark
+    public boolean substringCaseSensitive() {
+        return context(body).test(substringCaseSensitive);
+    }
+
+    @Benchmark
+    public boolean regex() {
+        return context(body).test(regex);
+    }
+
+    @Benchmark
+    public boolean regexBacktrackingPattern() {
+        return context(backtrackingBody).test(backtrackingRegex);
+    }
+
+    private MessageContext context(String text) {
+        return new MessageContext(new BodyView(text), BUDGET_NANOS);
+    }
+
+    private static final class BodyView extends CachedMessageView {
+
+        private final String body;
+
+        private BodyView(String body) {
+            this.body = body;
+        }
+
+        @Override
+        protected String load(String name) {
+            return MessageView.BODY.equals(name) ? body : null;
+        }
+
+        @Override
+        public Long receivedAt() {
+            return null;
+        }
+    }
+}
@@ -3,9 +3,56 @@ package com.example.alarms.actions;
 import reactor.core.publisher.Flux;
 
 import java.util.Map;
+import java.util.Set;
 
 public interface Action {
     Flux<Object> execute();
     Long getInterval();
+
+    default SchedulePolicy getSchedulePolicy() {
+        return SchedulePolicy.FIXED_RATE;
+    }
+
+    /**
+     * Mail server the action talks to, used to limit concurrent executions per host.
+     */
+    default String getHost() {
+        return "";
+    }
     Map<String, Object> getExposedParamsJson();
+
+    /**
+     * Message fields the rules of this action read, see {@link com.example.alarms.rules.Rule#getRequiredFields()}.
+     */
+    default void setRequiredFields(Set<String> fields) {
+    }
+
+    /**
+     * Runtime statistics of the action (buffer depth, dropped messages...).
+     */
+    default Map<String, Object> getStats() {
+        return Map.of();
+    }
+
+    /**
+     * Position in the mailbox up to which messages have been fully processed, persisted with the reservation.
+     * Only advances on {@link #commit()}, so a job resumed elsewhere never skips a message.
+     *
+     * @return opaque checkpoint, null if the action keeps none
+     */
+    default String getCheckpoint() {
+        return null;
+    }
+
+    /**
+     * Called once every message of the last execution went through the rules, moves the checkpoint past them.
+     */
+    default void commit() {
+    }
+
+    /**
+     * Continues from the checkpoint of the previous owner of the job, called before the first execution.
+     */
+    default void resume(String checkpoint) {
+    }
 }
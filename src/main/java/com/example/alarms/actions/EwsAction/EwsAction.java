@@ -1,6 +1,8 @@
 package com.example.alarms.actions.EwsAction;
 
 import com.example.alarms.actions.Action;
+import com.example.alarms.actions.SchedulePolicy;
+import com.example.alarms.actions.utils.SeenIdFilter;
 import com.example.alarms.components.ApplicationContextProvider;
 import com.example.alarms.services.EnvService;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
@@ -22,15 +24,19 @@ import microsoft.exchange.webservices.data.notification.PullSubscription;
 import microsoft.exchange.webservices.data.property.complex.FolderId;
 
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
 
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
+import java.util.function.Function;
 
 @Slf4j
 @Setter
 @Getter
 public class EwsAction implements Action {
+    private static final int CHECKPOINT_SEEN_IDS = 256;
+
     private final String paramsJson;
     private final Long actionId;
     private Date lastChecked = null;
@@ -45,13 +51,22 @@ public class EwsAction implements Action {
     private PullSubscription subscription;
 
     private EnvService envService;
+    private EwsHostLimiter hostLimiter;
+
+    // Item ids already emitted, the last ones are part of the checkpoint
+    private final SeenIdFilter seenIds;
+    private volatile String checkpoint;
+    // Watermark of the last fully processed batch, a failed batch is fetched again from here
+    private volatile String committedWatermark;
 
     public EwsAction(String jsonParams, Long actionId) throws Exception {
         this.envService = ApplicationContextProvider.getApplicationContext().getBean(EnvService.class);
+        this.hostLimiter = ApplicationContextProvider.getApplicationContext().getBean(EwsHostLimiter.class);
 
         this.paramsJson = jsonParams;
         this.actionId = actionId;
         this.params = mapParamsToFields();
+        this.seenIds = new SeenIdFilter(this.params.getSeenIdsCapacity());
 
         Optional<EnvService.EwsAccountDetails> ewsPassword = envService.findByUrlAndUsername(this.params.getEws_url(), this.params.getUsername());
         if (ewsPassword.isEmpty()){
@@ -67,14 +82,76 @@ public class EwsAction implements Action {
         }
 
         // Subscribe to Pull Notifications for Inbox
-        this.subscription = service.subscribeToPullNotifications(
+        this.subscription = subscribe("");
+        this.committedWatermark = subscription.getWaterMark();
+
+        log.info("Pull subscription created successfully!");
+    }
+
+    private PullSubscription subscribe(String watermark) throws Exception {
+        return hostLimiter.call(getHost(), () -> service.subscribeToPullNotifications(
                 List.of(new FolderId(WellKnownFolderName.Inbox)),
                 5,  // Timeout in minutes
-                "",
+                watermark,
                 EventType.NewMail
-        );
+        ));
+    }
 
-        log.info("Pull subscription created successfully!");
+    /**
+     * Re-subscribes from the watermark of the previous owner, so events that arrived meanwhile are delivered.
+     * Events between the watermark and the crash of the previous owner are delivered again,
+     * the ones it already processed are dropped by the seen ids.
+     */
+    @Override
+    public void resume(String checkpoint) {
+        try {
+            Checkpoint previous = new ObjectMapper().readValue(checkpoint, Checkpoint.class);
+            if (previous.seen() != null) {
+                seenIds.addAll(previous.seen());
+            }
+            if (previous.watermark() != null && !previous.watermark().isBlank()) {
+                PullSubscription resumed = subscribe(previous.watermark());
+                unsubscribeQuietly(this.subscription);
+                this.subscription = resumed;
+                this.committedWatermark = previous.watermark();
+                log.info("Pull subscription resumed from watermark");
+            }
+            this.checkpoint = checkpoint;
+        } catch (Exception e) {
+            // expired watermark, keep the fresh subscription
+            log.warn("Failed to resume action {} from checkpoint, starting from now: {}", actionId, e.getMessage());
+        }
+    }
+
+    private void unsubscribeQuietly(PullSubscription pullSubscription) {
+        try {
+            hostLimiter.call(getHost(), () -> {
+                pullSubscription.unsubscribe();
+                return null;
+            });
+        } catch (Exception e) {
+            log.debug("Failed to unsubscribe: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public String getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Moves the checkpoint to the watermark of the subscription, every event before it has been processed.
+     */
+    @Override
+    public void commit() {
+        try {
+            String watermark = subscription.getWaterMark();
+            this.checkpoint = new ObjectMapper().writeValueAsString(
+                    new Checkpoint(watermark, seenIds.recent(CHECKPOINT_SEEN_IDS)));
+            this.committedWatermark = watermark;
+        } catch (Exception e) {
+            log.warn("Failed to build checkpoint of action {}: {}", actionId, e.getMessage());
+        }
     }
 
     private EwsActionParams mapParamsToFields() {
@@ -96,20 +173,23 @@ public class EwsAction implements Action {
         return Flux.create(sink -> {
             try {
                 // Fetch new events
-                GetEventsResults events = subscription.getEvents();
+                GetEventsResults events = hostLimiter.call(getHost(), subscription::getEvents);
 
+                List<ItemEvent> newMail = new ArrayList<>();
                 for (ItemEvent event : events.getItemEvents()) {  // ✅ Correct method
                     if (event.getEventType() == EventType.NewMail) {
-                        try {
-                            // Fetch full email details
-                            EmailMessage email = EmailMessage.bind(service, event.getItemId());
-                            email.load();
-                            sink.next(email);  // Emit email as an event
-                        } catch (Exception e) {
-                            sink.error(new RuntimeException("Failed to fetch email details", e));
-                        }
+                        newMail.add(event);
                     }
                 }
+                // Fetch full email details, bind already loads the first class properties
+                boolean fetched = emitUnseen(newMail, event -> event.getItemId().getUniqueId(),
+                        event -> hostLimiter.call(getHost(), () -> EmailMessage.bind(service, event.getItemId())),
+                        seenIds, sink);
+                if (!fetched) {
+                    // the subscription already moved past this batch, go back so the rest is delivered again
+                    rewind();
+                    return;
+                }
                 sink.complete();  // Mark Flux as completed
             } catch (Exception e) {
                 sink.error(new RuntimeException("Error fetching email events", e));
@@ -117,6 +197,62 @@ public class EwsAction implements Action {
         });
     }
 
+    /**
+     * Emits the mails of items not seen before, in order. An id only counts as seen once its mail was
+     * emitted, the first failed fetch errors the sink and ends the batch, so it and the items after it
+     * stay unseen and are fetched again.
+     *
+     * @return false if a fetch failed
+     */
+    static <I> boolean emitUnseen(List<I> items, Function<I, String> idOf, MailFetcher<I> fetcher,
+                                  SeenIdFilter seenIds, FluxSink<Object> sink) {
+        for (I item : items) {
+            String id = idOf.apply(item);
+            if (seenIds.contains(id)) {
+                continue;
+            }
+            Object mail;
+            try {
+                mail = fetcher.fetch(item);
+            } catch (Exception e) {
+                sink.error(new RuntimeException("Failed to fetch email details", e));
+                return false;
+            }
+            sink.next(mail);  // Emit email as an event
+            seenIds.add(id);
+        }
+        return true;
+    }
+
+    private void rewind() {
+        String watermark = committedWatermark;
+        if (watermark == null || watermark.isBlank()) {
+            return;
+        }
+        try {
+            PullSubscription rewound = subscribe(watermark);
+            unsubscribeQuietly(this.subscription);
+            this.subscription = rewound;
+        } catch (Exception e) {
+            log.warn("Failed to rewind action {} to its last watermark: {}", actionId, e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    interface MailFetcher<I> {
+        Object fetch(I item) throws Exception;
+    }
+
+    @Override
+    public String getHost() {
+        return service.getUrl().getHost();
+    }
+
+    @Override
+    public SchedulePolicy getSchedulePolicy() {
+        return SchedulePolicy.fromString(this.params.getSchedulePolicy());
+    }
+
     @Override
     public Long getInterval(){
         return this.params.getInterval();
@@ -129,6 +265,11 @@ public class EwsAction implements Action {
         return objectMapper.convertValue(exposedParams, new TypeReference<>() {});
     }
 
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Checkpoint(@JsonProperty("watermark") String watermark,
+                      @JsonProperty("seen") List<String> seen) {
+    }
+
     @Setter
     @Getter
     @JsonIgnoreProperties(ignoreUnknown = true)
@@ -19,5 +19,15 @@ public class EwsActionParams {
     @JsonProperty("username")
     @Schema(description = "Username for EWS", example = "username", required = true)
     private String username;
-}
 
+    @JsonProperty("schedule_policy")
+    @Schema(description = "What to do when an execution takes longer than the interval",
+            example = "fixed_rate",
+            allowableValues = {"fixed_rate", "fixed_delay", "skip_if_busy"})
+    private String schedulePolicy = "fixed_rate";
+
+    @JsonProperty("seen_ids_capacity")
+    @Schema(description = "How many recently processed message ids are remembered to drop duplicates",
+            example = "10000", minimum = "1")
+    private Integer seenIdsCapacity = 10000;
+}
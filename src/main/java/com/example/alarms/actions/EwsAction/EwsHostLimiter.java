@@ -0,0 +1,151 @@
+package com.example.alarms.actions.EwsAction;
+
+import com.example.alarms.metrics.PipelineMetrics;
+import lombok.extern.slf4j.Slf4j;
+import microsoft.exchange.webservices.data.core.exception.service.remote.ServerBusyException;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits EWS traffic per Exchange host, shared by all EwsActions pointing at the same server.
+ * Every call has to get a token from the host's token bucket (EWS_RATE_PER_SECOND, EWS_BURST),
+ * wait out any back-off the server asked for with ErrorServerBusy and then get a free in-flight slot
+ * (EWS_MAX_IN_FLIGHT), held for the call only. Calls block while waiting, so they must run on the
+ * blocking I/O executor.
+ * <p>
+ * A call rejected with ErrorServerBusy is retried after the back-off, up to EWS_BUSY_RETRIES times,
+ * since the events it belongs to were usually consumed already.
+ */
+@Slf4j
+@Component
+public class EwsHostLimiter {
+
+    private final double ratePerSecond;
+    private final int burst;
+    private final int maxInFlight;
+    private final int busyRetries;
+    private final PipelineMetrics metrics;
+
+    private final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+
+    public EwsHostLimiter(PipelineMetrics metrics, Environment env) {
+        this.metrics = metrics;
+        this.ratePerSecond = Double.parseDouble(env.getProperty("EWS_RATE_PER_SECOND", "10"));
+        this.burst = Integer.parseInt(env.getProperty("EWS_BURST", "20"));
+        this.maxInFlight = Integer.parseInt(env.getProperty("EWS_MAX_IN_FLIGHT", "4"));
+        this.busyRetries = Integer.parseInt(env.getProperty("EWS_BUSY_RETRIES", "3"));
+    }
+
+    public <T> T call(String host, Callable<T> call) throws Exception {
+        HostState state = hosts.computeIfAbsent(host.toLowerCase(), __ -> new HostState(ratePerSecond, burst, maxInFlight));
+
+        for (int attempt = 0; ; attempt++) {
+            state.bucket.acquire();
+            state.acquireSlot();
+            try {
+                return call.call();
+            } catch (ServerBusyException e) {
+                long backOff = state.backOff(e.getBackOffMilliseconds());
+                metrics.recordEwsThrottled();
+                if (attempt >= busyRetries) {
+                    log.warn("EWS host {} is still busy after {} retries, giving up", host, busyRetries);
+                    throw e;
+                }
+                log.warn("EWS host {} is busy, retrying in {} ms", host, backOff);
+            } finally {
+                state.inFlight.release();
+            }
+        }
+    }
+
+    int freeSlots(String host) {
+        HostState state = hosts.get(host.toLowerCase());
+        return state != null ? state.inFlight.availablePermits() : maxInFlight;
+    }
+
+    private static class HostState {
+        // used when ErrorServerBusy comes without a back-off
+        private static final long DEFAULT_BACK_OFF_MILLIS = 1000;
+
+        private final TokenBucket bucket;
+        private final Semaphore inFlight;
+        private final AtomicLong backOffUntil = new AtomicLong();
+
+        HostState(double ratePerSecond, int burst, int maxInFlight) {
+            this.bucket = new TokenBucket(ratePerSecond, burst);
+            this.inFlight = new Semaphore(maxInFlight, true);
+        }
+
+        long backOff(long millis) {
+            long wait = millis > 0 ? millis : DEFAULT_BACK_OFF_MILLIS;
+            long until = System.currentTimeMillis() + wait;
+            backOffUntil.accumulateAndGet(until, Math::max);
+            return wait;
+        }
+
+        /**
+         * Takes an in-flight slot once no back-off is pending. Waiting out a back-off, like waiting for
+         * a token, happens without a slot, so only calls on the wire count against EWS_MAX_IN_FLIGHT.
+         */
+        void acquireSlot() throws InterruptedException {
+            while (true) {
+                awaitBackOff();
+                inFlight.acquire();
+                if (backOffUntil.get() <= System.currentTimeMillis()) {
+                    return;
+                }
+                // the server asked to back off while this call waited for a slot
+                inFlight.release();
+            }
+        }
+
+        void awaitBackOff() throws InterruptedException {
+            long wait = backOffUntil.get() - System.currentTimeMillis();
+            if (wait > 0) {
+                Thread.sleep(wait);
+            }
+        }
+    }
+
+    /**
+     * Token bucket handing out reservations: a caller that finds the bucket empty
+     * takes a token from the future and sleeps until it is due.
+     */
+    static class TokenBucket {
+        private final double tokensPerNano;
+        private final double capacity;
+
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(double ratePerSecond, int burst) {
+            this.tokensPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = Math.max(burst, 1);
+            this.tokens = this.capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        void acquire() throws InterruptedException {
+            long waitNanos = reserve();
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+
+        synchronized long reserve() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+
+            tokens -= 1;
+            return tokens >= 0 ? 0 : (long) (-tokens / tokensPerNano);
+        }
+    }
+}
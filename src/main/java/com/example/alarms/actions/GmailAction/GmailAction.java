@@ -1,6 +1,9 @@
 package com.example.alarms.actions.GmailAction;
 
 import com.example.alarms.actions.Action;
+import com.example.alarms.actions.SchedulePolicy;
+import com.example.alarms.actions.utils.BoundedMessageBuffer;
+import com.example.alarms.actions.utils.SeenIdFilter;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -9,12 +12,15 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.SynchronousSink;
 import jakarta.mail.event.ConnectionEvent;
 import jakarta.mail.*;
 import jakarta.mail.event.ConnectionListener;
 import jakarta.mail.event.MessageCountEvent;
 import jakarta.mail.event.MessageCountListener;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 @Setter
@@ -23,6 +29,7 @@ public class GmailAction implements Action {
 
     private static final String IMAP_HOST = "imap.gmail.com";
     private static final String IMAP_PORT = "993";
+    private static final int IMAP_FETCH_SIZE = 16384;
 
     private final String paramsJson;
     private final Long actionId;
@@ -31,7 +38,18 @@ public class GmailAction implements Action {
     private Store store;
     private Folder inbox;
 
-    ArrayList<Message> receivedMessages;
+    // What gets prefetched for each drained batch, body text is always fetched lazily by the rules
+    private FetchProfile fetchProfile = buildFetchProfile(Set.of());
+
+    // Filled by the JavaMail event thread, drained by the scheduler thread in execute()
+    private final BoundedMessageBuffer<Message> receivedMessages;
+
+    // UIDs already emitted, drops messages delivered both by the listener and the resume fetch
+    private final SeenIdFilter seenUids;
+    // Highest UID of a fully processed message and the UIDVALIDITY it belongs to
+    private volatile long uidValidity;
+    private volatile long committedUid;
+    private final AtomicLong highestUid = new AtomicLong();
 
     @Getter
     private GmailActionParams params;
@@ -44,7 +62,10 @@ public class GmailAction implements Action {
         this.actionId = actionId;
         this.params = mapParamsToFields();
 
-        receivedMessages = new ArrayList<>();
+        receivedMessages = new BoundedMessageBuffer<>(
+                this.params.getBufferCapacity(),
+                BoundedMessageBuffer.OverflowPolicy.fromString(this.params.getOverflowPolicy()));
+        seenUids = new SeenIdFilter(this.params.getSeenIdsCapacity());
 
         Properties properties = new Properties();
         properties.put("mail.imap.host", IMAP_HOST);
@@ -52,6 +73,9 @@ public class GmailAction implements Action {
         properties.put("mail.imap.ssl.enable", "true");
         properties.put("mail.imap.auth", "true");
         properties.put("mail.imap.ssl.protocols", "TLSv1.2");
+        // Fetch body parts in chunks so rules reading a capped prefix never pull the whole part
+        properties.put("mail.imap.partialfetch", "true");
+        properties.put("mail.imap.fetchsize", String.valueOf(IMAP_FETCH_SIZE));
 
         Session session = Session.getInstance(properties, null);
 
@@ -90,11 +114,16 @@ public class GmailAction implements Action {
             inbox = store.getFolder("INBOX");
             inbox.open(Folder.READ_ONLY);
 
+            // Without a checkpoint the action starts with the messages arriving from now on
+            UIDFolder uidFolder = (UIDFolder) inbox;
+            uidValidity = uidFolder.getUIDValidity();
+            committedUid = Math.max(0, uidFolder.getUIDNext() - 1);
+
             inbox.addMessageCountListener(new MessageCountListener() {
                 @Override
                 public void messagesAdded(MessageCountEvent event) {
                     Message[] messages = event.getMessages();
-                    receivedMessages.addAll(Arrays.asList(messages));
+                    receivedMessages.offerAll(messages);
                 }
 
                 @Override
@@ -127,17 +156,155 @@ public class GmailAction implements Action {
             try {
                 inbox.getMessageCount(); // Trigger server interaction to check for updates
 
-                return Flux.defer(() -> {
-                    Flux<Object> flux = Flux.fromIterable(new ArrayList<>(receivedMessages));
-                    receivedMessages.clear();
-                    return flux;
-                });
+                // Only drain what is buffered now, messages arriving meanwhile wait for the next tick
+                int pending = receivedMessages.size();
+                int batchSize = this.params.getDrainBatchSize();
+                AtomicInteger remaining = new AtomicInteger(pending);
+
+                return Flux.<List<Message>>generate(sink -> {
+                            List<Message> batch = remaining.get() > 0
+                                    ? receivedMessages.drain(Math.min(batchSize, remaining.get()))
+                                    : List.of();
+                            if (batch.isEmpty()) {
+                                sink.complete();
+                                return;
+                            }
+                            remaining.addAndGet(-batch.size());
+                            prefetch(batch);
+                            sink.next(batch);
+                        })
+                        .concatMapIterable(batch -> batch)
+                        .<Object>handle((message, sink) -> {
+                            long uid = uidOf(message);
+                            if (uid < 0) {
+                                log.warn("Failed to read the UID of a message of action {}, it is not checked for duplicates", actionId);
+                            }
+                            emitUnseen(message, uid, seenUids, highestUid, sink);
+                        });
             } catch (Exception e) {
                 return Flux.empty();
             }
         });
     }
 
+    /**
+     * Emits a message unless its UID was emitted before. Like the item ids of EwsAction, a UID only
+     * counts as seen once its message was emitted. A message without a UID (negative) is emitted
+     * unchecked and moves neither the seen UIDs nor the highest UID.
+     */
+    static <M> void emitUnseen(M message, long uid, SeenIdFilter seenUids, AtomicLong highestUid,
+                               SynchronousSink<Object> sink) {
+        if (uid < 0) {
+            sink.next(message);
+            return;
+        }
+        String id = String.valueOf(uid);
+        if (seenUids.contains(id)) {
+            return;
+        }
+        sink.next(message);
+        seenUids.add(id);
+        highestUid.accumulateAndGet(uid, Math::max);
+    }
+
+    private long uidOf(Message message) {
+        try {
+            return ((UIDFolder) message.getFolder()).getUID(message);
+        } catch (MessagingException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Queues the messages that arrived after the checkpoint of the previous owner.
+     * If the mailbox UIDVALIDITY changed the UIDs are meaningless and the action starts from now.
+     */
+    @Override
+    public void resume(String checkpoint) {
+        try {
+            Checkpoint previous = new ObjectMapper().readValue(checkpoint, Checkpoint.class);
+            UIDFolder uidFolder = (UIDFolder) inbox;
+            if (previous.uidValidity() != uidFolder.getUIDValidity()) {
+                log.warn("UIDVALIDITY of action {} changed, starting from now", actionId);
+                return;
+            }
+            Message[] missed = Arrays.stream(uidFolder.getMessagesByUID(previous.lastUid() + 1, UIDFolder.LASTUID))
+                    // a UID range ending with * always contains the last message, even if it is older
+                    .filter(message -> uidOf(message) > previous.lastUid())
+                    .toArray(Message[]::new);
+            receivedMessages.offerAll(missed);
+            committedUid = previous.lastUid();
+            highestUid.set(previous.lastUid());
+            log.info("Action {} resumed with {} messages received since its checkpoint", actionId, missed.length);
+        } catch (Exception e) {
+            log.warn("Failed to resume action {} from checkpoint, starting from now: {}", actionId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void commit() {
+        committedUid = Math.max(committedUid, highestUid.get());
+    }
+
+    @Override
+    public String getCheckpoint() {
+        try {
+            return new ObjectMapper().writeValueAsString(new Checkpoint(uidValidity, committedUid));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void setRequiredFields(Set<String> fields) {
+        this.fetchProfile = buildFetchProfile(fields);
+    }
+
+    private static FetchProfile buildFetchProfile(Set<String> fields) {
+        FetchProfile profile = new FetchProfile();
+        // Subject, sender and dates
+        profile.add(FetchProfile.Item.ENVELOPE);
+        if (fields.contains("body")) {
+            // MIME structure only, so text parts can be picked without downloading attachments
+            profile.add(FetchProfile.Item.CONTENT_INFO);
+        }
+        if (fields.contains("flags")) {
+            profile.add(FetchProfile.Item.FLAGS);
+        }
+        return profile;
+    }
+
+    /**
+     * Loads the prefetch profile for a whole batch in a single IMAP FETCH command.
+     */
+    private void prefetch(List<Message> batch) {
+        try {
+            inbox.fetch(batch.toArray(new Message[0]), fetchProfile);
+        } catch (MessagingException e) {
+            // Messages are still usable, missing data gets loaded on access
+            log.warn("Failed to prefetch {} messages: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "bufferDepth", receivedMessages.size(),
+                "bufferCapacity", receivedMessages.getCapacity(),
+                "droppedMessages", receivedMessages.getDroppedCount()
+        );
+    }
+
+    @Override
+    public String getHost() {
+        return IMAP_HOST;
+    }
+
+    @Override
+    public SchedulePolicy getSchedulePolicy() {
+        return SchedulePolicy.fromString(this.params.getSchedulePolicy());
+    }
+
     @Override
     public Long getInterval(){
         return this.params.getInterval();
@@ -165,6 +332,11 @@ public class GmailAction implements Action {
 
     }
 
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Checkpoint(@JsonProperty("uid_validity") long uidValidity,
+                      @JsonProperty("last_uid") long lastUid) {
+    }
+
     @Setter
     @Getter
     @JsonIgnoreProperties(ignoreUnknown = true)
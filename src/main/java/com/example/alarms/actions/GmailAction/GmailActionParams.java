@@ -23,4 +23,29 @@ public class GmailActionParams {
     @Schema(description = "Interval in minutes", example = "5", minimum = "1")
     @JsonProperty("interval")
     private Long interval;
+
+    @Schema(description = "Maximum number of received messages buffered between two executions", example = "1000", minimum = "1")
+    @JsonProperty("buffer_capacity")
+    private Integer bufferCapacity = 1000;
+
+    @Schema(description = "What to drop when the buffer is full",
+            example = "drop_oldest",
+            allowableValues = {"drop_oldest", "drop_newest"})
+    @JsonProperty("overflow_policy")
+    private String overflowPolicy = "drop_oldest";
+
+    @Schema(description = "Number of messages drained from the buffer at once", example = "100", minimum = "1")
+    @JsonProperty("drain_batch_size")
+    private Integer drainBatchSize = 100;
+
+    @JsonProperty("schedule_policy")
+    @Schema(description = "What to do when an execution takes longer than the interval",
+            example = "fixed_rate",
+            allowableValues = {"fixed_rate", "fixed_delay", "skip_if_busy"})
+    private String schedulePolicy = "fixed_rate";
+
+    @JsonProperty("seen_ids_capacity")
+    @Schema(description = "How many recently processed message ids are remembered to drop duplicates",
+            example = "10000", minimum = "1")
+    private Integer seenIdsCapacity = 10000;
 }
@@ -0,0 +1,20 @@
+package com.example.alarms.actions;
+
+/**
+ * How periodic executions of an action are scheduled when an execution takes longer than the interval.
+ */
+public enum SchedulePolicy {
+    /** Ticks follow the interval; one missed tick runs right after the overrunning execution, others are skipped. */
+    FIXED_RATE,
+    /** The next execution starts one interval after the previous one finished. */
+    FIXED_DELAY,
+    /** Ticks that arrive while an execution is running are skipped. */
+    SKIP_IF_BUSY;
+
+    public static SchedulePolicy fromString(String value) {
+        if (value == null || value.isBlank()) {
+            return FIXED_RATE;
+        }
+        return SchedulePolicy.valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.alarms.actions.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded multi-producer / single-consumer buffer used by actions that receive
+ * messages on a library callback thread and hand them over on the scheduler thread.
+ * Producers never block: when the buffer is full the configured overflow policy
+ * decides which message gets dropped.
+ */
+public class BoundedMessageBuffer<T> {
+
+    public enum OverflowPolicy {
+        DROP_OLDEST,
+        DROP_NEWEST;
+
+        public static OverflowPolicy fromString(String value) {
+            if (value == null || value.isBlank()) {
+                return DROP_OLDEST;
+            }
+            return OverflowPolicy.valueOf(value.trim().toUpperCase());
+        }
+    }
+
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+
+    private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public BoundedMessageBuffer(int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Buffer capacity must be greater than 0");
+        }
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Adds a message to the buffer, applying the overflow policy if the buffer is full.
+     *
+     * @return false if the offered message itself was dropped
+     */
+    public boolean offer(T item) {
+        while (true) {
+            int current = size.get();
+            if (current < capacity) {
+                if (size.compareAndSet(current, current + 1)) {
+                    queue.offer(item);
+                    return true;
+                }
+                continue;
+            }
+
+            if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+                dropped.incrementAndGet();
+                return false;
+            }
+
+            // DROP_OLDEST: evict the head of the queue and take over its slot
+            if (queue.poll() != null) {
+                dropped.incrementAndGet();
+                queue.offer(item);
+                return true;
+            }
+            // a drain took the head first, or the slots belong to producers that have not enqueued yet
+            Thread.onSpinWait();
+        }
+    }
+
+    public void offerAll(T[] items) {
+        for (T item : items) {
+            offer(item);
+        }
+    }
+
+    /**
+     * Removes up to maxBatch messages from the head of the buffer.
+     */
+    public List<T> drain(int maxBatch) {
+        if (maxBatch <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<T> batch = new ArrayList<>(Math.min(maxBatch, Math.max(size.get(), 0)));
+        T item;
+        while (batch.size() < maxBatch && (item = queue.poll()) != null) {
+            size.decrementAndGet();
+            batch.add(item);
+        }
+        return batch;
+    }
+
+    public int size() {
+        return Math.max(size.get(), 0);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+}
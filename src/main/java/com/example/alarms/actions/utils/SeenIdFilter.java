@@ -0,0 +1,51 @@
+package com.example.alarms.actions.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU set of message ids an action already emitted.
+ * Used to drop messages that show up twice, e.g. replayed after a job resumed from its checkpoint.
+ */
+public class SeenIdFilter {
+
+    private final int capacity;
+    private final LinkedHashMap<String, Boolean> ids;
+
+    public SeenIdFilter(int capacity) {
+        this.capacity = capacity;
+        this.ids = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > SeenIdFilter.this.capacity;
+            }
+        };
+    }
+
+    public synchronized boolean contains(String id) {
+        return ids.containsKey(id);
+    }
+
+    public synchronized void add(String id) {
+        ids.put(id, Boolean.TRUE);
+    }
+
+    public synchronized void addAll(Collection<String> seen) {
+        seen.forEach(id -> ids.put(id, Boolean.TRUE));
+    }
+
+    /**
+     * @return up to limit most recently seen ids, oldest first
+     */
+    public synchronized List<String> recent(int limit) {
+        List<String> all = new ArrayList<>(ids.keySet());
+        return List.copyOf(all.subList(Math.max(0, all.size() - limit), all.size()));
+    }
+
+    public synchronized int size() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.alarms.components;
+
+import com.example.alarms.metrics.PipelineMetrics;
+import com.example.alarms.services.AlarmArchiveService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+
+/**
+ * Background job moving alarms out of the hot alarms table.
+ * <p>
+ * Every ALARM_ARCHIVE_INTERVAL_SECONDS, archived alarms and alarms older than ALARM_ARCHIVE_AFTER_DAYS
+ * are moved to alarms_archive in batches of ALARM_ARCHIVE_BATCH_SIZE. Batches are separated by
+ * ALARM_ARCHIVE_BATCH_PAUSE_MILLIS and a run stops after ALARM_ARCHIVE_MAX_BATCHES, so a large
+ * backlog is worked off over several runs instead of competing with online traffic. Each batch is a
+ * single statement, nodes running the job at the same time move disjoint rows.
+ * <p>
+ * With ALARM_RETENTION_DAYS set, archived alarms older than that are deleted the same way. Their counts
+ * are kept in the alarm_rollup table, so the statistics history outlives the raw alarms.
+ */
+@Slf4j
+@Component
+public class AlarmArchiver {
+
+    private final AlarmArchiveService alarmArchiveService;
+    private final PipelineMetrics metrics;
+
+    private final boolean enabled;
+    private final Duration interval;
+    private final Duration retention;
+    private final Duration purgeAfter;
+    private final int batchSize;
+    private final Duration batchPause;
+    private final int maxBatches;
+
+    private Disposable runs;
+
+    public AlarmArchiver(AlarmArchiveService alarmArchiveService, PipelineMetrics metrics, Environment env) {
+        this.alarmArchiveService = alarmArchiveService;
+        this.metrics = metrics;
+        this.enabled = Boolean.parseBoolean(env.getProperty("ALARM_ARCHIVE_ENABLED", "true"));
+        this.interval = Duration.ofSeconds(Long.parseLong(env.getProperty("ALARM_ARCHIVE_INTERVAL_SECONDS", "300")));
+        this.retention = Duration.ofDays(Long.parseLong(env.getProperty("ALARM_ARCHIVE_AFTER_DAYS", "30")));
+        // 0 keeps archived alarms forever
+        this.purgeAfter = Duration.ofDays(Long.parseLong(env.getProperty("ALARM_RETENTION_DAYS", "0")));
+        this.batchSize = Integer.parseInt(env.getProperty("ALARM_ARCHIVE_BATCH_SIZE", "500"));
+        this.batchPause = Duration.ofMillis(Long.parseLong(env.getProperty("ALARM_ARCHIVE_BATCH_PAUSE_MILLIS", "200")));
+        this.maxBatches = Integer.parseInt(env.getProperty("ALARM_ARCHIVE_MAX_BATCHES", "100"));
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        runs = Flux.interval(interval, interval)
+                .onBackpressureDrop()
+                .concatMap(__ -> run()
+                        .onErrorResume(e -> {
+                            log.error("Alarm archival failed: {}", e.getMessage(), e);
+                            return Mono.just(0L);
+                        }), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (runs != null) {
+            runs.dispose();
+        }
+    }
+
+    /**
+     * Moves, then purges, batches until one comes back short or the batch limit of the run is reached.
+     *
+     * @return number of alarms moved
+     */
+    public Mono<Long> run() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime archiveCutoff = now.minus(retention);
+        Mono<Long> moved = inBatches(() -> alarmArchiveService.moveBatch(archiveCutoff, batchSize))
+                .doOnNext(metrics::recordAlarmsArchived)
+                .reduce(0L, Long::sum)
+                .doOnNext(count -> {
+                    if (count > 0) {
+                        log.info("Archived {} alarms", count);
+                    }
+                });
+        if (purgeAfter.isZero()) {
+            return moved;
+        }
+
+        LocalDateTime purgeCutoff = now.minus(purgeAfter);
+        Mono<Long> purged = inBatches(() -> alarmArchiveService.purgeBatch(purgeCutoff, batchSize))
+                .reduce(0L, Long::sum)
+                .doOnNext(count -> {
+                    if (count > 0) {
+                        log.info("Purged {} archived alarms older than {}", count, purgeCutoff);
+                    }
+                });
+        return moved.flatMap(count -> purged.thenReturn(count));
+    }
+
+    private Flux<Long> inBatches(Supplier<Mono<Long>> batch) {
+        return Flux.range(0, maxBatches)
+                .concatMap(i -> Mono.delay(i == 0 ? Duration.ZERO : batchPause)
+                        .then(Mono.defer(batch)))
+                .takeUntil(count -> count < batchSize);
+    }
+}
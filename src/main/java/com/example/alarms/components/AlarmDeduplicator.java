@@ -0,0 +1,157 @@
+package com.example.alarms.components;
+
+import com.example.alarms.dto.AlarmRequest;
+import com.example.alarms.dto.Notification;
+import com.example.alarms.metrics.PipelineMetrics;
+import com.example.alarms.services.AlarmService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Folds repeated alarms into one row.
+ * <p>
+ * Alarms with the same fingerprint (rule, type, class, normalized subject) within the same
+ * ALARM_DEDUP_WINDOW_SECONDS bucket are one open alarm. The first one is inserted, repeats
+ * increment its occurrence count and last seen time. Open alarms are indexed in memory per time
+ * bucket, only the current bucket is kept. On an index miss the database is checked as well,
+ * so repeats are still folded after a restart or when the job moved to another node.
+ */
+@Slf4j
+@Component
+public class AlarmDeduplicator {
+
+    public static final String OUTCOME_INSERTED = "inserted";
+    public static final String OUTCOME_SUPPRESSED = "suppressed";
+
+    private static final Pattern REPLY_PREFIX = Pattern.compile("^((re|fw|fwd|aw|wg)\\s*:\\s*)+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final AlarmService alarmService;
+    private final PipelineMetrics metrics;
+    private final boolean enabled;
+    private final long windowMillis;
+
+    // bucket start -> fingerprint -> id of the open alarm, resolved once per fingerprint
+    private final ConcurrentSkipListMap<Long, Map<String, Mono<Long>>> buckets = new ConcurrentSkipListMap<>();
+
+    public AlarmDeduplicator(AlarmService alarmService, PipelineMetrics metrics, Environment env) {
+        this.alarmService = alarmService;
+        this.metrics = metrics;
+        this.enabled = Boolean.parseBoolean(env.getProperty("ALARM_DEDUP_ENABLED", "true"));
+        this.windowMillis = Long.parseLong(env.getProperty("ALARM_DEDUP_WINDOW_SECONDS", "3600")) * 1000L;
+
+        metrics.registerOpenAlarms(() -> buckets.values().stream().mapToInt(Map::size).sum());
+    }
+
+    /**
+     * Writes the alarm of a notification, or records another occurrence of the open alarm with the same fingerprint.
+     */
+    public Mono<Void> write(Notification notification, AlarmRequest alarm) {
+        String fingerprint = fingerprint(notification);
+        long now = System.currentTimeMillis();
+        if (!enabled) {
+            return insert(alarm, fingerprint, now).then();
+        }
+
+        long bucketStart = now - Math.floorMod(now, windowMillis);
+        Map<String, Mono<Long>> bucket = currentBucket(bucketStart);
+
+        AtomicBoolean first = new AtomicBoolean();
+        Mono<Long> openAlarm = bucket.computeIfAbsent(fingerprint, __ -> {
+            first.set(true);
+            // concurrent repeats wait for the same lookup/insert instead of inserting twice
+            return findOrInsert(alarm, fingerprint, bucketStart, now).cache();
+        });
+
+        if (first.get()) {
+            return openAlarm
+                    .doOnError(__ -> bucket.remove(fingerprint, openAlarm))
+                    .then();
+        }
+
+        return openAlarm
+                .map(Optional::of)
+                .onErrorResume(e -> {
+                    // the writer that resolved the open alarm failed, resolve it again through the index
+                    // so concurrent repeats still share one lookup and insert
+                    bucket.remove(fingerprint, openAlarm);
+                    return Mono.just(Optional.empty());
+                })
+                .flatMap(id -> id.isEmpty()
+                        ? write(notification, alarm)
+                        : alarmService.recordOccurrence(id.get(), alarm, toLocalDateTime(now))
+                                .flatMap(recorded -> {
+                                    if (recorded) {
+                                        metrics.recordAlarmDedup(OUTCOME_SUPPRESSED);
+                                        return Mono.<Void>empty();
+                                    }
+                                    // archived or deleted meanwhile, the repeat opens a new alarm
+                                    bucket.remove(fingerprint, openAlarm);
+                                    return write(notification, alarm);
+                                }));
+    }
+
+    private Mono<Long> findOrInsert(AlarmRequest alarm, String fingerprint, long bucketStart, long now) {
+        return alarmService.findOpenIdByFingerprint(fingerprint, toLocalDateTime(bucketStart))
+                .flatMap(id -> alarmService.recordOccurrence(id, alarm, toLocalDateTime(now))
+                        .filter(recorded -> recorded)
+                        .doOnNext(__ -> metrics.recordAlarmDedup(OUTCOME_SUPPRESSED))
+                        .map(__ -> id))
+                .switchIfEmpty(Mono.defer(() -> insert(alarm, fingerprint, now)));
+    }
+
+    private Mono<Long> insert(AlarmRequest alarm, String fingerprint, long now) {
+        return alarmService.saveWithFingerprint(alarm, fingerprint, toLocalDateTime(now))
+                .doOnNext(__ -> metrics.recordAlarmDedup(OUTCOME_INSERTED))
+                .map(entity -> entity.getId());
+    }
+
+    private Map<String, Mono<Long>> currentBucket(long bucketStart) {
+        // alarms of older buckets are no longer open, drop their index
+        buckets.headMap(bucketStart).clear();
+        return buckets.computeIfAbsent(bucketStart, __ -> new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Identity of an alarm: rule, type, class and the subject without reply prefixes, case and extra whitespace.
+     */
+    static String fingerprint(Notification notification) {
+        String source = notification.getRuleId() + "|" + notification.getAlarmTypeId() + "|"
+                + notification.getAlarmClassId() + "|" + normalizeSubject(notification.getSubject());
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String normalizeSubject(String subject) {
+        if (subject == null) {
+            return "";
+        }
+        String normalized = WHITESPACE.matcher(subject.trim().toLowerCase(Locale.ROOT)).replaceAll(" ");
+        return REPLY_PREFIX.matcher(normalized).replaceFirst("");
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.alarms.components;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Short-lived cache of successful HTTP Basic logins and of the accounts behind them, so a request with
+ * known credentials costs neither a BCrypt check nor an account query.
+ * <p>
+ * Logins are keyed by an HMAC of username and password under a random key of this process, the password
+ * itself is never kept. Entries live for AUTH_CACHE_TTL_SECONDS, at most AUTH_CACHE_MAX_ENTRIES of each
+ * kind are kept, and changing or deleting an account drops its entries on this node. Other nodes keep
+ * theirs until they expire, so the TTL bounds how long an old password keeps working there.
+ */
+@Slf4j
+@Component
+public class AuthenticationCache {
+
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final SecretKeySpec key;
+
+    private final ConcurrentHashMap<String, Entry<Authentication>> logins = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Entry<UserDetails>> users = new ConcurrentHashMap<>();
+
+    public AuthenticationCache(Environment env) {
+        this.enabled = Boolean.parseBoolean(env.getProperty("AUTH_CACHE_ENABLED", "true"));
+        this.ttlMillis = Long.parseLong(env.getProperty("AUTH_CACHE_TTL_SECONDS", "60")) * 1000;
+        this.maxEntries = Integer.parseInt(env.getProperty("AUTH_CACHE_MAX_ENTRIES", "10000"));
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.key = new SecretKeySpec(secret, "HmacSHA256");
+    }
+
+    public Authentication getLogin(String username, String password) {
+        return enabled ? get(logins, credentialsKey(username, password)) : null;
+    }
+
+    public void putLogin(String username, String password, Authentication authentication) {
+        if (enabled) {
+            put(logins, credentialsKey(username, password), username, authentication);
+        }
+    }
+
+    public UserDetails getUser(String username) {
+        return enabled ? get(users, username) : null;
+    }
+
+    public void putUser(UserDetails user) {
+        if (enabled) {
+            put(users, user.getUsername(), user.getUsername(), user);
+        }
+    }
+
+    /**
+     * Drops cached logins and the account of a user, call it whenever an account changes.
+     */
+    public void invalidate(String username) {
+        if (username == null) {
+            return;
+        }
+        users.remove(username);
+        logins.values().removeIf(entry -> username.equals(entry.username()));
+    }
+
+    private <T> T get(Map<String, Entry<T>> cache, String key) {
+        Entry<T> entry = cache.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() < System.currentTimeMillis()) {
+            cache.remove(key, entry);
+            return null;
+        }
+        return entry.value();
+    }
+
+    private <T> void put(Map<String, Entry<T>> cache, String key, String username, T value) {
+        long now = System.currentTimeMillis();
+        if (cache.size() >= maxEntries) {
+            cache.values().removeIf(entry -> entry.expiresAt() < now);
+            if (cache.size() >= maxEntries) {
+                // full of live entries, the caller just takes the slow path next time
+                log.debug("Authentication cache is full, not caching {}", username);
+                return;
+            }
+        }
+        cache.put(key, new Entry<>(username, value, now + ttlMillis));
+    }
+
+    private String credentialsKey(String username, String password) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return Base64.getEncoder().encodeToString(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private record Entry<T>(String username, T value, long expiresAt) {
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.alarms.components;
+
+import com.example.alarms.metrics.PipelineMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs blocking mailbox I/O (EWS, JavaMail, SMTP) off the Reactor event loops.
+ * <p>
+ * EXECUTOR_MODE selects where the blocking work runs:
+ * <ul>
+ *     <li>bounded-elastic (default) - Reactor's boundedElastic pool</li>
+ *     <li>virtual - one virtual thread per execution</li>
+ * </ul>
+ * Executions against the same mail host are limited to HOST_MAX_CONCURRENCY at a time. A permit is held
+ * while the mailbox is read only, not while the rules process what was read, and an execution waiting
+ * longer than HOST_PERMIT_TIMEOUT_SECONDS for one fails instead of pinning its thread.
+ */
+@Slf4j
+@Component
+public class BlockingIoExecutor {
+
+    public static final String MODE_BOUNDED_ELASTIC = "bounded-elastic";
+    public static final String MODE_VIRTUAL = "virtual";
+
+    @Getter
+    private final String mode;
+
+    @Getter
+    private final Scheduler scheduler;
+
+    private final int hostMaxConcurrency;
+    private final long hostPermitTimeoutSeconds;
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+    private final Map<String, Semaphore> poolPermits = new ConcurrentHashMap<>();
+
+    public BlockingIoExecutor(Environment env, PipelineMetrics metrics) {
+        this.mode = env.getProperty("EXECUTOR_MODE", MODE_BOUNDED_ELASTIC).trim().toLowerCase();
+        this.hostMaxConcurrency = Integer.parseInt(env.getProperty("HOST_MAX_CONCURRENCY", "16"));
+        this.hostPermitTimeoutSeconds = Long.parseLong(env.getProperty("HOST_PERMIT_TIMEOUT_SECONDS", "30"));
+
+        this.scheduler = switch (mode) {
+            case MODE_VIRTUAL -> Schedulers.fromExecutorService(
+                    Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("mailbox-io-", 0).factory()),
+                    "mailbox-io");
+            case MODE_BOUNDED_ELASTIC -> Schedulers.boundedElastic();
+            default -> throw new IllegalArgumentException("Unsupported EXECUTOR_MODE: " + mode);
+        };
+
+        metrics.registerHostPermitsInUse(this::getPermitsInUse);
+        log.info("Blocking I/O executor mode: {}, max concurrency per host: {}", mode, hostMaxConcurrency);
+    }
+
+    /**
+     * Subscribes to a blocking publisher on the I/O scheduler while holding a permit of the given host.
+     * The permit is released as soon as the publisher terminates or gets cancelled, its elements reach
+     * the subscriber on another worker afterwards.
+     * Fails with a {@link TimeoutException} if no permit frees up within HOST_PERMIT_TIMEOUT_SECONDS.
+     */
+    public <T> Flux<T> execute(String host, Supplier<Flux<T>> blockingCall) {
+        Semaphore permits = permitsFor(host);
+        return Flux.using(
+                        () -> acquire(permits, host),
+                        __ -> blockingCall.get(),
+                        Semaphore::release)
+                .subscribeOn(scheduler)
+                // hands the elements over instead of running the subscriber on the thread holding the permit
+                .publishOn(scheduler);
+    }
+
+    private Semaphore acquire(Semaphore permits, String host) throws InterruptedException, TimeoutException {
+        if (!permits.tryAcquire(hostPermitTimeoutSeconds, TimeUnit.SECONDS)) {
+            throw new TimeoutException("No permit for host " + host + " within " + hostPermitTimeoutSeconds + "s");
+        }
+        return permits;
+    }
+
+    /**
+     * Runs a blocking task on the I/O scheduler, without a host limit.
+     */
+    public Mono<Void> run(Runnable blockingTask) {
+        return Mono.fromRunnable(blockingTask)
+                .subscribeOn(scheduler)
+                .then();
+    }
+
+    /**
+     * Runs a blocking task on the I/O scheduler, at most maxConcurrency tasks of the same pool at a time.
+     * The worker holds the permit until the task returns, so a task its subscriber gave up on, e.g. after a
+     * timeout, keeps counting until it really ends. Cancelling interrupts the worker, which only stops
+     * blocking calls that honour interrupts.
+     */
+    public Mono<Void> run(String pool, int maxConcurrency, Runnable blockingTask) {
+        Semaphore permits = poolPermits.computeIfAbsent(pool, __ -> new Semaphore(maxConcurrency, true));
+        return run(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Cancelled while waiting for a " + pool + " worker");
+            }
+            try {
+                blockingTask.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    private int getPermitsInUse() {
+        return hostPermits.values().stream()
+                .mapToInt(permits -> hostMaxConcurrency - permits.availablePermits())
+                .sum();
+    }
+
+    private Semaphore permitsFor(String host) {
+        return hostPermits.computeIfAbsent(normalize(host), __ -> new Semaphore(hostMaxConcurrency, true));
+    }
+
+    private String normalize(String host) {
+        return host == null ? "" : host.toLowerCase();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (MODE_VIRTUAL.equals(mode)) {
+            scheduler.dispose();
+        }
+    }
+}
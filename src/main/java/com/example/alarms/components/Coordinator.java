@@ -1,6 +1,7 @@
 package com.example.alarms.components;
 
 import com.example.alarms.actions.Action;
+import com.example.alarms.actions.SchedulePolicy;
 import com.example.alarms.dto.ActionRequest;
 import com.example.alarms.dto.Jobs;
 import com.example.alarms.dto.RuleMapper;
@@ -10,9 +11,16 @@ import com.example.alarms.entities.ReactionEntity;
 import com.example.alarms.entities.RuleEntity;
 import com.example.alarms.entities.security.SecurityAccount;
 import com.example.alarms.exceptions.*;
+import com.example.alarms.metrics.InstrumentedReaction;
+import com.example.alarms.metrics.PipelineMetrics;
+import com.example.alarms.metrics.TraceContext;
+import io.micrometer.observation.ObservationRegistry;
 import com.example.alarms.reactions.Reaction;
 import com.example.alarms.reactions.WriteAlarmToDBReaction;
-import com.example.alarms.rules.Rule;
+import com.example.alarms.rules.engine.CompiledRule;
+import com.example.alarms.rules.engine.MessageContext;
+import com.example.alarms.rules.engine.RuleCompiler;
+import com.example.alarms.rules.engine.RuleSet;
 import com.example.alarms.services.ActionService;
 import com.example.alarms.services.ReservationService;
 import lombok.AllArgsConstructor;
@@ -21,7 +29,9 @@ import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.Disposable;
+import reactor.core.publisher.BufferOverflowStrategy;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
@@ -29,11 +39,15 @@ import reactor.core.scheduler.Schedulers;
 import java.lang.reflect.Constructor;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 import org.springframework.core.env.Environment;
@@ -47,24 +61,39 @@ public class Coordinator {
     private  final RuleMapper ruleMapper;
     private final ReservationService reservationService;
     private final ActionService actionService;
+    private final RuleCompiler ruleCompiler;
+    private final BlockingIoExecutor blockingIoExecutor;
+    private final PipelineMetrics metrics;
+    private final ObservationRegistry observationRegistry;
+    private final TransactionalOperator transactionalOperator;
 
     private final ConcurrentHashMap<Long, JobDescription> subscriptions;
 
     private final Duration jobTimeout;
     private final Integer batchSize;
+    private final boolean tickJitter;
     private final String instanceId;
     private volatile boolean isRunning;
 
 
-    public Coordinator(ActionService actionService, RuleMapper ruleMapper, ReservationService reservationService, Environment env) {
+    public Coordinator(ActionService actionService, RuleMapper ruleMapper, ReservationService reservationService,
+                       RuleCompiler ruleCompiler, BlockingIoExecutor blockingIoExecutor, PipelineMetrics metrics,
+                       ObservationRegistry observationRegistry, TransactionalOperator transactionalOperator, Environment env) {
         this.actionService = actionService;
+        this.ruleCompiler = ruleCompiler;
+        this.blockingIoExecutor = blockingIoExecutor;
+        this.metrics = metrics;
+        this.observationRegistry = observationRegistry;
+        this.transactionalOperator = transactionalOperator;
         this.ruleMapper = ruleMapper;
         this.reservationService = reservationService;
 
         this.subscriptions = new ConcurrentHashMap<>();
+        metrics.registerOwnedJobs(subscriptions::size);
 
         this.jobTimeout = Duration.ofSeconds(Integer.parseInt(env.getProperty("JOB_TIMEOUT", "60")));
         this.batchSize = Integer.parseInt(env.getProperty("BATCH_SIZE", "5"));
+        this.tickJitter = Boolean.parseBoolean(env.getProperty("TICK_JITTER", "true"));
 
         this.instanceId = UUID.randomUUID().toString();
         this.isRunning = false;
@@ -170,6 +199,7 @@ public class Coordinator {
                         LocalDateTime.now(),
                         timeoutThreshold
                 )
+                .doOnNext(metrics::recordClaim)
                 .filter(acquired -> acquired)
                 .flatMap(__ -> {
                     // Get the associated Action for this Job
@@ -182,7 +212,7 @@ public class Coordinator {
                     return actionService.getActionById(actionId)
                             .flatMap(action ->
                                     // Process the job reactively and then return the job
-                                    scheduleJob(action, job.getId())
+                                    scheduleJob(action, job.getId(), job.getCheckpoint())
                                             .thenReturn(job)
                             )
                             .switchIfEmpty(Mono.defer(() ->
@@ -198,26 +228,16 @@ public class Coordinator {
         return (Action) createInstance(actionClassName, new Class<?>[]{String.class, Long.class}, actionEntity.getParams(), actionEntity.getId());
     }
 
-    public List<Rule> createRules(ActionEntity actionEntity) {
-        return actionEntity.getRules().stream()
-                .map(ruleEntity -> createRule(ruleEntity, actionEntity.getAlarmTypeId(), actionEntity.getAlarmClassId()))
-                .collect(Collectors.toList());
+    public RuleSet createRules(ActionEntity actionEntity) {
+        return ruleCompiler.compile(actionEntity.getRules(), actionEntity.getAlarmTypeId(), actionEntity.getAlarmClassId(),
+                this::createReactions);
     }
 
-    private Rule createRule(RuleEntity ruleEntity, Long alarmTypeId, Long alarmClassId) {
-        List<Reaction> reactions = Stream.concat(
+    private List<Reaction> createReactions(RuleEntity ruleEntity) {
+        return Stream.concat(
                 ruleEntity.getReactions().stream().map(this::createReaction), // Existing reactions
                 Stream.of(new WriteAlarmToDBReaction(ruleEntity.getId()) ) // adding write alarm to db as default reaction
-        ).toList();
-
-        String ruleClassName = "com.example.alarms.rules." + ruleEntity.getName() + "." + ruleEntity.getName();
-        try {
-            return (Rule) createInstance(ruleClassName,
-                    new Class<?>[]{String.class, Long.class, List.class, Long.class, Long.class},
-                    ruleEntity.getDefinition(), ruleEntity.getId(), reactions, alarmTypeId, alarmClassId);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to create Rule: " + ruleEntity.getName(), e);
-        }
+        ).<Reaction>map(reaction -> new InstrumentedReaction(reaction, metrics, observationRegistry)).toList();
     }
 
     private Reaction createReaction(ReactionEntity reactionEntity) {
@@ -242,14 +262,16 @@ public class Coordinator {
      * Schedules a job based on the provided action entity.
      * @return Mono<Void> that completes when the job is scheduled
      */
-    private Mono<Void> scheduleJob(ActionEntity actionEntity, Long jobId) {
+    private Mono<Void> scheduleJob(ActionEntity actionEntity, Long jobId, String checkpoint) {
         log.info("Scheduling job: {} with action: {}", jobId, actionEntity.getType());
 
         // Create action and rules using reactive error handling
-        return createActionAndRules(actionEntity)
+        return createActionAndRules(actionEntity, checkpoint)
                 .flatMap(components -> {
                     Action action = components.getT1();
-                    List<Rule> rules = components.getT2();
+                    RuleSet rules = components.getT2();
+                    // resolved before rule timers are armed, a bad policy fails the job instead of leaving it half started
+                    SchedulePolicy schedulePolicy = action.getSchedulePolicy();
 
                     // First execution immediately
                     Flux<Void> initialExecution = executeActionAndRules(action, rules)
@@ -258,10 +280,11 @@ public class Coordinator {
                                 return Flux.empty();
                             });
 
-                    // Setup periodic execution
-                    return initialExecution
+                    // Restore rule state and arm rule timers, then setup periodic execution
+                    return rules.start()
+                            .thenMany(initialExecution)
                             .then() // Convert Flux<Void> to Mono<Void>
-                            .doOnSuccess(__ -> setupPeriodicExecution(action, rules, actionEntity, jobId));
+                            .doOnSuccess(__ -> setupPeriodicExecution(action, rules, schedulePolicy, actionEntity, jobId));
                 })
                 .onErrorResume(e -> {
                     log.error("Failed to schedule job {}: {}", jobId, e.getMessage());
@@ -271,15 +294,19 @@ public class Coordinator {
     }
 
     /**
-     * Creates the action and rules in a reactive way.
+     * Creates the action and rules in a reactive way, the action continues from the checkpoint of the job if there is one.
      */
-    private Mono<Tuple2<Action, List<Rule>>> createActionAndRules(ActionEntity actionEntity) {
+    private Mono<Tuple2<Action, RuleSet>> createActionAndRules(ActionEntity actionEntity, String checkpoint) {
         return Mono.defer(() -> {
                     log.debug("Mono.defer was subscribed to");
                     try {
                         log.debug("Entering try block");
                         Action action = createAction(actionEntity);
-                        List<Rule> rules = createRules(actionEntity);
+                        RuleSet rules = createRules(actionEntity);
+                        action.setRequiredFields(rules.getRequiredFields());
+                        if (checkpoint != null) {
+                            action.resume(checkpoint);
+                        }
                         return Mono.just(Tuples.of(action, rules));
                     } catch (Exception e) {
                         Throwable original = e.getCause();
@@ -288,40 +315,62 @@ public class Coordinator {
                         return Mono.error(e);
                     }
                 })
-                .doOnSubscribe(sub -> log.debug("Mono was subscribed to"));
+                .doOnSubscribe(sub -> log.debug("Mono was subscribed to"))
+                // Action constructors open mailbox connections
+                .subscribeOn(blockingIoExecutor.getScheduler());
     }
 
     /**
      * Executes an action and its associated rules.
      */
-    private Flux<Void> executeActionAndRules(Action action, List<Rule> rules) {
-        return action.execute()
-                .switchIfEmpty(Mono.just(new Object()))
-                .flatMap(data -> Flux.fromIterable(rules)
-                        .doOnNext(rule -> rule.execute(data))
-                        .then());
+    private Flux<Void> executeActionAndRules(Action action, RuleSet rules) {
+        String actionType = action.getClass().getSimpleName();
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            return blockingIoExecutor.execute(action.getHost(), action::execute)
+                    .doOnNext(__ -> metrics.recordActionMessage(actionType))
+                    .switchIfEmpty(Mono.just(new Object()))
+                    .flatMap(data -> {
+                        TraceContext trace = TraceContext.start(observationRegistry, actionType);
+                        // one context per message, so conditions shared between rules are evaluated once
+                        MessageContext context = rules.prepare(data);
+                        return Flux.fromIterable(rules.getRules())
+                                .doOnNext(rule -> evaluateRule(rule, context, trace))
+                                .doFinally(__ -> trace.stop())
+                                .then();
+                    })
+                    // the rules are done with every message of this execution
+                    .doOnComplete(action::commit)
+                    .doOnComplete(() -> metrics.recordActionExecution(actionType, System.nanoTime() - start, true))
+                    .doOnError(__ -> metrics.recordActionExecution(actionType, System.nanoTime() - start, false));
+        });
+    }
+
+    private void evaluateRule(CompiledRule rule, MessageContext context, TraceContext trace) {
+        long start = System.nanoTime();
+        try {
+            rule.evaluate(context, trace);
+        } catch (Exception e) {
+            log.error("Error executing rule {}: {}", rule.getRuleId(), e.getMessage());
+        } finally {
+            metrics.recordRuleEvaluation(rule.getName(), System.nanoTime() - start);
+        }
     }
 
     /**
      * Sets up periodic execution of an action and its rules.
      */
-    private void setupPeriodicExecution(Action action, List<Rule> rules,
+    private void setupPeriodicExecution(Action action, RuleSet rules, SchedulePolicy schedulePolicy,
                                         ActionEntity actionEntity, Long jobId) {
 
-        Disposable subscription = Flux.interval(Duration.ofSeconds(action.getInterval()))
-                .publishOn(Schedulers.boundedElastic())
-                .concatMap(tick -> {
-                    // Continue on error
-                    return executeActionAndRules(action, rules)
-                        .onErrorResume(err -> {
-                            log.error("Error executing action: {}", err.getMessage());
-                            return Flux.empty(); // Continue on error
-                        });
+        Duration period = Duration.ofSeconds(action.getInterval());
+        TickStats tickStats = new TickStats(action.getClass().getSimpleName(), metrics);
 
-                })
+        Disposable subscription = periodicTicks(schedulePolicy, tickPhase(period), period, tickStats,
+                        scheduledAt -> executeTick(action, rules, scheduledAt, period, tickStats))
                 .onErrorResume(throwable -> {
                     log.error("Error in action execution of a job {} with message: {}", jobId, throwable.getMessage());
-                    return Flux.empty();
+                    return Mono.empty();
                 })
                 .subscribe();
 
@@ -333,7 +382,66 @@ public class Coordinator {
                 actionEntity.getRules().stream().map(ruleMapper::toDTO).toList()
         );
 
-        subscriptions.put(actionEntity.getId(), new JobDescription(subscription, jobId, jobs));
+        subscriptions.put(actionEntity.getId(), new JobDescription(subscription, jobId, jobs, action, rules, tickStats));
+    }
+
+    /**
+     * Emits ticks according to the schedule policy and runs the tick function for each of them.
+     * The tick function receives the scheduled start time in epoch millis.
+     */
+    private Mono<Void> periodicTicks(SchedulePolicy policy, Duration phase, Duration period, TickStats tickStats,
+                                     Function<Long, Mono<Void>> tick) {
+        long periodMillis = period.toMillis();
+        long firstTickAt = System.currentTimeMillis() + phase.toMillis();
+
+        return switch (policy) {
+            // flatMap with concurrency 1 only requests the next tick once the running one is done,
+            // ticks emitted in the meantime are buffered (fixed rate) or dropped (skip if busy)
+            case FIXED_RATE -> Flux.interval(phase, period)
+                    .onBackpressureBuffer(1, __ -> tickStats.recordSkipped(), BufferOverflowStrategy.DROP_LATEST)
+                    .flatMap(n -> tick.apply(firstTickAt + n * periodMillis), 1, 1)
+                    .then();
+            case SKIP_IF_BUSY -> Flux.interval(phase, period)
+                    .onBackpressureDrop(__ -> tickStats.recordSkipped())
+                    .flatMap(n -> tick.apply(firstTickAt + n * periodMillis), 1, 1)
+                    .then();
+            case FIXED_DELAY -> {
+                AtomicLong nextTickAt = new AtomicLong(firstTickAt);
+                yield Mono.delay(phase)
+                        .then(Mono.defer(() -> tick.apply(nextTickAt.get()))
+                                .doFinally(__ -> nextTickAt.set(System.currentTimeMillis() + periodMillis))
+                                .then(Mono.delay(period))
+                                .repeat()
+                                .then());
+            }
+        };
+    }
+
+    /**
+     * Runs a single periodic execution, recording its drift and duration.
+     */
+    private Mono<Void> executeTick(Action action, RuleSet rules, long scheduledAt, Duration period, TickStats tickStats) {
+        return Mono.defer(() -> {
+            long startedAt = tickStats.recordStart(scheduledAt);
+            return executeActionAndRules(action, rules)
+                    .onErrorResume(err -> {
+                        log.error("Error executing action: {}", err.getMessage());
+                        return Flux.empty(); // Continue on error
+                    })
+                    .then()
+                    .doFinally(__ -> tickStats.recordEnd(startedAt, period.toMillis()));
+        });
+    }
+
+    /**
+     * Delay of the first periodic tick. With jitter enabled each action gets a random phase
+     * within its interval, so actions polling the same server don't all tick at the same moment.
+     */
+    private Duration tickPhase(Duration period) {
+        if (!tickJitter || period.toMillis() <= 0) {
+            return period;
+        }
+        return period.plusMillis(ThreadLocalRandom.current().nextLong(period.toMillis()));
     }
 
     public Mono<Void> stopAction(Long actionId) {
@@ -365,14 +473,22 @@ public class Coordinator {
             log.warn("Subscription for action ID {} was already disposed or null", actionId);
         }
 
+
         // Remove from subscriptions map
         JobDescription removed = subscriptions.remove(actionId);
         if (removed != null) {
             log.debug("Removed job description from subscriptions map for action ID: {}", actionId);
         }
 
+        // Cancel rule timers and checkpoint rule state before another node can claim the job
+        Mono<Void> stopRules = jobDescription.getRules() != null
+                ? jobDescription.getRules().stop()
+                : Mono.empty();
+
         // Release the job and return the reactive result
-        return reservationService.releaseJob(jobDescription.getJobId(), this.instanceId)
+        return stopRules
+                .then(Mono.defer(() -> reservationService.releaseJob(jobDescription.getJobId(), this.instanceId,
+                        jobDescription.getAction() != null ? jobDescription.getAction().getCheckpoint() : null)))
                 .doOnSuccess(v -> log.info("Successfully released job {} for action ID {}",
                         jobDescription.getJobId(), actionId))
                 .doOnError(error -> log.error("Error releasing job {} for action ID {}: {}",
@@ -392,13 +508,37 @@ public class Coordinator {
         return subscriptions.containsKey(actionId);
     }
 
+    /**
+     * Runtime statistics of an action running on this instance.
+     * @return empty Mono if the action is not running here
+     */
+    public Mono<Map<String, Object>> getActionStats(Long actionId) {
+        JobDescription jobDescription = subscriptions.get(actionId);
+        if (jobDescription == null || jobDescription.getAction() == null) {
+            return Mono.empty();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>(jobDescription.getAction().getStats());
+        if (jobDescription.getTickStats() != null) {
+            stats.put("schedule", jobDescription.getTickStats().toMap());
+        }
+        return Mono.just(stats);
+    }
+
     private void setupHeartbeat() {
         Flux.interval(Duration.ofSeconds(30))
                 .publishOn(Schedulers.boundedElastic())
                 .flatMap(tick -> Flux.fromIterable(subscriptions.entrySet())
                         .flatMap(entry -> {
                             Long jobId = entry.getValue().getJobId(); // assuming getter exists
-                            return reservationService.updateHeartbeat(jobId, instanceId, LocalDateTime.now())
+                            Action action = entry.getValue().getAction();
+                            return Mono.defer(() -> {
+                                        long start = System.nanoTime();
+                                        // the heartbeat carries the mailbox checkpoint, so it costs no extra write
+                                        String checkpoint = action != null ? action.getCheckpoint() : null;
+                                        return reservationService.updateHeartbeat(jobId, instanceId, LocalDateTime.now(), checkpoint)
+                                                .doOnSuccess(__ -> metrics.recordHeartbeat(System.nanoTime() - start, true))
+                                                .doOnError(__ -> metrics.recordHeartbeat(System.nanoTime() - start, false));
+                                    })
                                     .subscribeOn(Schedulers.boundedElastic())
                                     .onErrorResume(err -> {
                                         log.error("Failed to update heartbeat for job {}: {}", jobId, err.getMessage());
@@ -433,6 +573,7 @@ public class Coordinator {
                     return reservationService.save(job)
                             .thenReturn(actionEntity);
                 })
+                .as(transactionalOperator::transactional) // an action without its job would never be scheduled
                 .onErrorMap(ex -> {
                     // Don't wrap our custom exceptions
                     if (ex instanceof UserNotFoundException ||
@@ -468,8 +609,9 @@ public class Coordinator {
 
     public Mono<Void> delete(Long actionId) {
         return this.stopAction(actionId)  // Now returns Mono<Void> directly
-                .then(actionService.deleteAction(actionId))
-                .then(reservationService.deleteByActionId(actionId))
+                .then(actionService.deleteAction(actionId)
+                        .then(reservationService.deleteByActionId(actionId))
+                        .as(transactionalOperator::transactional))
                 .doOnSuccess(__ -> subscriptions.remove(actionId))
                 .onErrorResume(ex -> {
                     log.error("Failed to delete action {}: {}", actionId, ex.getMessage(), ex);
@@ -502,5 +644,8 @@ public class Coordinator {
         private Disposable disposable;
         private Long jobId;
         private Jobs job;
+        private Action action;
+        private RuleSet rules;
+        private TickStats tickStats;
     }
 }
@@ -0,0 +1,148 @@
+package com.example.alarms.components;
+
+import com.example.alarms.dto.Notification;
+import com.example.alarms.reactions.Reaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Node-wide pipeline executing reactions for the notifications emitted by rules.
+ * <p>
+ * Every reaction type has its own bounded queue (REACTION_QUEUE_CAPACITY) and runs at most
+ * REACTION_CONCURRENCY executions in flight, which keeps memory and DB connections bounded during
+ * an alarm storm. REACTION_CONCURRENCY_&lt;ReactionType&gt; overrides the limit for a single type.
+ * Separate queues keep a stalled type, e.g. an SMTP server that stopped answering, from holding up
+ * the others; it only fills and then drops from its own queue.
+ * <p>
+ * Each execution times out after REACTION_TIMEOUT_SECONDS. Failures are retried up to
+ * REACTION_MAX_RETRIES times with exponential back-off, only if the reaction says the error is
+ * retryable and never after a timeout, since the timed out work may still complete.
+ * <p>
+ * A timeout frees the execution's place in the lane right away. Blocking work the reaction started keeps
+ * running until its call returns, since an interrupt does not stop blocking socket I/O. Reactions doing
+ * blocking calls therefore bound their workers to the lane's concurrency
+ * ({@link BlockingIoExecutor#run(String, int, Runnable)} with {@link #concurrencyFor(String)}), so sends
+ * that hang past the timeout hold up their own type instead of piling up beyond the limit.
+ */
+@Slf4j
+@Component
+public class ReactionPipeline {
+
+    private final Environment env;
+
+    private final int defaultConcurrency;
+    private final Duration timeout;
+    private final int maxRetries;
+    private final int capacity;
+
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Counter rejected;
+
+    private volatile boolean stopped;
+
+    public ReactionPipeline(Environment env, MeterRegistry registry) {
+        this.env = env;
+        this.defaultConcurrency = Integer.parseInt(env.getProperty("REACTION_CONCURRENCY", "8"));
+        this.timeout = Duration.ofSeconds(Long.parseLong(env.getProperty("REACTION_TIMEOUT_SECONDS", "30")));
+        this.maxRetries = Integer.parseInt(env.getProperty("REACTION_MAX_RETRIES", "3"));
+
+        this.capacity = Integer.parseInt(env.getProperty("REACTION_QUEUE_CAPACITY", "10000"));
+
+        Gauge.builder("alarms.reaction.queue", pending, AtomicInteger::get)
+                .description("Reactions queued or in flight")
+                .register(registry);
+        this.rejected = Counter.builder("alarms.reaction.rejected")
+                .description("Reactions dropped because the reaction queue was full")
+                .register(registry);
+    }
+
+    /**
+     * Queues the reactions of a rule for a notification.
+     * Never blocks, if the queue is full the reaction is dropped and counted.
+     */
+    public void submit(Notification notification, List<Reaction> reactions) {
+        if (stopped) {
+            return;
+        }
+        for (Reaction reaction : reactions) {
+            Lane lane = lanes.computeIfAbsent(reaction.getType(), this::startLane);
+            Sinks.EmitResult result;
+            // Rules emit from many threads, the sink needs serialized emissions
+            synchronized (lane.sink()) {
+                result = lane.sink().tryEmitNext(new ReactionTask(notification, reaction));
+            }
+
+            if (result.isSuccess()) {
+                pending.incrementAndGet();
+            } else {
+                rejected.increment();
+                log.warn("Dropped reaction {} for rule {}: {}",
+                        reaction.getType(), notification.getRuleId(), result);
+            }
+        }
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    private Lane startLane(String reactionType) {
+        Sinks.Many<ReactionTask> sink = Sinks.many().unicast().onBackpressureBuffer(Queues.<ReactionTask>get(capacity).get());
+        Disposable subscription = sink.asFlux()
+                .flatMap(this::execute, concurrencyFor(reactionType))
+                .subscribe();
+        return new Lane(sink, subscription);
+    }
+
+    private Mono<Void> execute(ReactionTask task) {
+        Reaction reaction = task.reaction();
+        return Mono.defer(() -> reaction.execute(task.notification()))
+                .timeout(timeout)
+                .retryWhen(Retry.backoff(maxRetries, Duration.ofMillis(500))
+                        .filter(e -> !(e instanceof TimeoutException) && reaction.isRetryable(e))
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .onErrorResume(e -> {
+                    log.error("Reaction {} failed for rule {}: {}",
+                            task.reaction().getType(), task.notification().getRuleId(), e.getMessage());
+                    return Mono.empty();
+                })
+                .doFinally(__ -> pending.decrementAndGet());
+    }
+
+    /**
+     * Executions of the reaction type allowed in flight at a time.
+     */
+    public int concurrencyFor(String reactionType) {
+        return Integer.parseInt(env.getProperty("REACTION_CONCURRENCY_" + reactionType, String.valueOf(defaultConcurrency)));
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+        lanes.values().forEach(lane -> lane.subscription().dispose());
+    }
+
+    private record ReactionTask(Notification notification, Reaction reaction) {
+    }
+
+    private record Lane(Sinks.Many<ReactionTask> sink, Disposable subscription) {
+    }
+}
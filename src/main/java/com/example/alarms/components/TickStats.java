@@ -0,0 +1,101 @@
+package com.example.alarms.components;
+
+import com.example.alarms.metrics.PipelineMetrics;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scheduling statistics of a periodically executed action: how late ticks start compared to
+ * their scheduled time, how many executions overran the interval and how many ticks were skipped.
+ */
+public class TickStats {
+
+    private final String actionType;
+    private final PipelineMetrics metrics;
+
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong overruns = new AtomicLong();
+    private final AtomicLong totalDriftMillis = new AtomicLong();
+    private final AtomicLong maxDriftMillis = new AtomicLong();
+
+    private volatile long lastScheduledAt;
+    private volatile long lastStartedAt;
+    private volatile long lastDriftMillis;
+    private volatile long lastDurationMillis;
+
+    public TickStats(String actionType, PipelineMetrics metrics) {
+        this.actionType = actionType;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the actual start time in epoch millis
+     */
+    public long recordStart(long scheduledAt) {
+        long startedAt = System.currentTimeMillis();
+        long drift = Math.max(startedAt - scheduledAt, 0);
+
+        ticks.incrementAndGet();
+        totalDriftMillis.addAndGet(drift);
+        maxDriftMillis.accumulateAndGet(drift, Math::max);
+
+        lastScheduledAt = scheduledAt;
+        lastStartedAt = startedAt;
+        lastDriftMillis = drift;
+        metrics.recordTickDrift(actionType, drift);
+        return startedAt;
+    }
+
+    public void recordEnd(long startedAt, long periodMillis) {
+        long duration = System.currentTimeMillis() - startedAt;
+        lastDurationMillis = duration;
+        if (duration > periodMillis) {
+            overruns.incrementAndGet();
+            metrics.recordTickOverrun(actionType);
+        }
+    }
+
+    public void recordSkipped() {
+        skipped.incrementAndGet();
+        metrics.recordTickSkipped(actionType);
+    }
+
+    public long getTicks() {
+        return ticks.get();
+    }
+
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    public long getOverruns() {
+        return overruns.get();
+    }
+
+    public long getLastDriftMillis() {
+        return lastDriftMillis;
+    }
+
+    public long getMaxDriftMillis() {
+        return maxDriftMillis.get();
+    }
+
+    public Map<String, Object> toMap() {
+        long tickCount = ticks.get();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("ticks", tickCount);
+        map.put("skippedTicks", skipped.get());
+        map.put("overruns", overruns.get());
+        map.put("lastScheduledAt", lastScheduledAt == 0 ? null : Instant.ofEpochMilli(lastScheduledAt).toString());
+        map.put("lastStartedAt", lastStartedAt == 0 ? null : Instant.ofEpochMilli(lastStartedAt).toString());
+        map.put("lastDriftMillis", lastDriftMillis);
+        map.put("maxDriftMillis", maxDriftMillis.get());
+        map.put("avgDriftMillis", tickCount == 0 ? 0 : totalDriftMillis.get() / tickCount);
+        map.put("lastDurationMillis", lastDurationMillis);
+        return map;
+    }
+}
@@ -10,6 +10,9 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.data.r2dbc.config.AbstractR2dbcConfiguration;
 import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
 import org.springframework.lang.NonNull;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
 
 @Configuration
 @Profile(value = "!test")
@@ -44,4 +47,15 @@ public class R2dbcConfiguration extends AbstractR2dbcConfiguration {
                 .trustServerCertificate(true) // For development - disable in production
                 .build());
     }
-}
\ No newline at end of file
+
+    @Bean
+    public ReactiveTransactionManager transactionManager(ConnectionFactory connectionFactory) {
+        return new R2dbcTransactionManager(connectionFactory);
+    }
+
+    // Writes of an action aggregate (action, rules, reactions, reservation) commit or roll back together
+    @Bean
+    public TransactionalOperator transactionalOperator(ReactiveTransactionManager transactionManager) {
+        return TransactionalOperator.create(transactionManager);
+    }
+}
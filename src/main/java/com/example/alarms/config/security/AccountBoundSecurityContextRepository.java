@@ -0,0 +1,87 @@
+package com.example.alarms.config.security;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.web.server.context.ServerSecurityContextRepository;
+import org.springframework.security.web.server.context.WebSessionServerSecurityContextRepository;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebSession;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Keeps the security context in the web session together with a fingerprint of the account it was
+ * opened for. A session whose account was deleted, or whose password, roles or enabled flag changed,
+ * is invalidated on its next request.
+ * <p>
+ * Accounts are read through the {@link ReactiveUserDetailsService}, so a change is seen right away on
+ * the node that made it and within AUTH_CACHE_TTL_SECONDS on the others.
+ */
+public class AccountBoundSecurityContextRepository implements ServerSecurityContextRepository {
+
+    static final String ACCOUNT_ATTRIBUTE = AccountBoundSecurityContextRepository.class.getName() + ".ACCOUNT";
+
+    private final ServerSecurityContextRepository delegate = new WebSessionServerSecurityContextRepository();
+    private final ReactiveUserDetailsService userDetailsService;
+
+    public AccountBoundSecurityContextRepository(ReactiveUserDetailsService userDetailsService) {
+        this.userDetailsService = userDetailsService;
+    }
+
+    @Override
+    public Mono<Void> save(ServerWebExchange exchange, SecurityContext context) {
+        Authentication authentication = context != null ? context.getAuthentication() : null;
+        if (authentication == null) {
+            return delegate.save(exchange, context);
+        }
+        return userDetailsService.findByUsername(authentication.getName())
+                .map(AccountBoundSecurityContextRepository::fingerprint)
+                .flatMap(fingerprint -> exchange.getSession()
+                        .doOnNext(session -> session.getAttributes().put(ACCOUNT_ATTRIBUTE, fingerprint)))
+                .then(delegate.save(exchange, context));
+    }
+
+    @Override
+    public Mono<SecurityContext> load(ServerWebExchange exchange) {
+        return delegate.load(exchange)
+                .flatMap(context -> exchange.getSession()
+                        .flatMap(session -> current(session, context.getAuthentication())
+                                .map(__ -> context)
+                                .switchIfEmpty(Mono.defer(() -> session.invalidate().then(Mono.empty())))));
+    }
+
+    private Mono<Boolean> current(WebSession session, Authentication authentication) {
+        String fingerprint = session.getAttribute(ACCOUNT_ATTRIBUTE);
+        if (authentication == null || fingerprint == null) {
+            return Mono.empty();
+        }
+        return userDetailsService.findByUsername(authentication.getName())
+                .map(user -> fingerprint.equals(fingerprint(user)))
+                .filter(Boolean::booleanValue)
+                .onErrorResume(e -> Mono.empty());
+    }
+
+    static String fingerprint(UserDetails user) {
+        try {
+            // the password hash itself is not kept in the session
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(user.getPassword()).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Boolean.toString(user.isEnabled()).getBytes(StandardCharsets.UTF_8));
+            for (String authority : user.getAuthorities().stream().map(GrantedAuthority::getAuthority).sorted().toList()) {
+                digest.update((byte) 0);
+                digest.update(String.valueOf(authority).getBytes(StandardCharsets.UTF_8));
+            }
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
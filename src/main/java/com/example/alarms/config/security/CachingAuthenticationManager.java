@@ -0,0 +1,37 @@
+package com.example.alarms.config.security;
+
+import com.example.alarms.components.AuthenticationCache;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import reactor.core.publisher.Mono;
+
+/**
+ * Answers repeated username and password logins from the {@link AuthenticationCache}, everything else
+ * goes to the delegate. Only successful logins are cached.
+ */
+public class CachingAuthenticationManager implements ReactiveAuthenticationManager {
+
+    private final ReactiveAuthenticationManager delegate;
+    private final AuthenticationCache authenticationCache;
+
+    public CachingAuthenticationManager(ReactiveAuthenticationManager delegate, AuthenticationCache authenticationCache) {
+        this.delegate = delegate;
+        this.authenticationCache = authenticationCache;
+    }
+
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        if (!(authentication instanceof UsernamePasswordAuthenticationToken)
+                || !(authentication.getCredentials() instanceof String password)) {
+            return delegate.authenticate(authentication);
+        }
+        String username = authentication.getName();
+        Authentication cached = authenticationCache.getLogin(username, password);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return delegate.authenticate(authentication)
+                .doOnNext(authenticated -> authenticationCache.putLogin(username, password, authenticated));
+    }
+}
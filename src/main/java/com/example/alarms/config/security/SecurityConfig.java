@@ -1,36 +1,95 @@
 package com.example.alarms.config.security;
 
+import com.example.alarms.components.AuthenticationCache;
 import com.example.alarms.services.UserDetailsServiceImpl;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
 import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.csrf.CookieServerCsrfTokenRepository;
+import org.springframework.security.web.server.csrf.CsrfToken;
+import org.springframework.security.web.server.csrf.ServerCsrfTokenRequestAttributeHandler;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
 
-import static org.springframework.security.config.Customizer.withDefaults;
+import java.util.Set;
 
 @EnableWebFluxSecurity
 @Configuration
 public class SecurityConfig {
 
+    private static final Set<HttpMethod> SAFE_METHODS = Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS, HttpMethod.TRACE);
+
+    // With AUTH_SESSIONS_ENABLED=true a Basic login also opens a session, clients sending its SESSION cookie
+    // back are not authenticated again until the session expires or its account changes. Browsers send that
+    // cookie on cross-site requests too, so changes made with it need the XSRF-TOKEN cookie echoed back in
+    // the X-XSRF-TOKEN header.
     @Bean
     public SecurityWebFilterChain securityWebFilterChain(
-            ServerHttpSecurity http) {
+            ServerHttpSecurity http, Environment env, UserDetailsServiceImpl userDetailsService) {
+        boolean sessions = Boolean.parseBoolean(env.getProperty("AUTH_SESSIONS_ENABLED", "false"));
+        AccountBoundSecurityContextRepository sessionRepository = sessions
+                ? new AccountBoundSecurityContextRepository(userDetailsService)
+                : null;
+        if (sessions) {
+            // loads the context of every request, not only the one saved by a Basic login
+            http.securityContextRepository(sessionRepository)
+                    .csrf(csrf -> csrf
+                            .csrfTokenRepository(CookieServerCsrfTokenRepository.withHttpOnlyFalse())
+                            // the raw cookie value is the header value, no per-request masking
+                            .csrfTokenRequestHandler(new ServerCsrfTokenRequestAttributeHandler())
+                            .requireCsrfProtectionMatcher(SecurityConfig::requiresCsrfToken))
+                    .addFilterAfter(SecurityConfig::writeCsrfCookie, SecurityWebFiltersOrder.CSRF);
+        } else {
+            http.csrf(ServerHttpSecurity.CsrfSpec::disable);
+        }
         return http
-                .csrf(ServerHttpSecurity.CsrfSpec::disable)
                 .authorizeExchange(exchanges -> exchanges
                         .anyExchange().authenticated())
-                .httpBasic(withDefaults())
+                .httpBasic(basic -> {
+                    if (sessions) {
+                        basic.securityContextRepository(sessionRepository);
+                    }
+                })
                 .build();
     }
 
+    /**
+     * Changes authenticated by the session cookie only. A cross-site request can't set the Authorization
+     * header without a preflight, Basic requests are left as they are.
+     */
+    private static Mono<ServerWebExchangeMatcher.MatchResult> requiresCsrfToken(ServerWebExchange exchange) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (SAFE_METHODS.contains(request.getMethod()) || request.getHeaders().containsKey(HttpHeaders.AUTHORIZATION)) {
+            return ServerWebExchangeMatcher.MatchResult.notMatch();
+        }
+        return ServerWebExchangeMatcher.MatchResult.match();
+    }
+
+    // the token is loaded lazily, subscribing writes the XSRF-TOKEN cookie for clients to read
+    private static Mono<Void> writeCsrfCookie(ServerWebExchange exchange, WebFilterChain chain) {
+        Mono<CsrfToken> token = exchange.getAttribute(CsrfToken.class.getName());
+        return (token != null ? token.then() : Mono.<Void>empty())
+                .then(Mono.defer(() -> chain.filter(exchange)));
+    }
+
     @Bean
-    ReactiveAuthenticationManager authenticationManager(UserDetailsServiceImpl userDetailsService, PasswordEncoder passwordEncoder) {
-        return new UserDetailsRepositoryReactiveAuthenticationManager(userDetailsService);
+    ReactiveAuthenticationManager authenticationManager(UserDetailsServiceImpl userDetailsService, PasswordEncoder passwordEncoder,
+                                                        AuthenticationCache authenticationCache) {
+        return new CachingAuthenticationManager(
+                new UserDetailsRepositoryReactiveAuthenticationManager(userDetailsService), authenticationCache);
     }
 
     @Bean
@@ -1,12 +1,21 @@
 package com.example.alarms.controllers;
 import com.example.alarms.dto.AlarmRequest;
 import com.example.alarms.dto.AlarmResponse;
+import com.example.alarms.dto.AlarmSearchPage;
+import com.example.alarms.dto.AlarmStatsPoint;
+import com.example.alarms.dto.BulkAlarmRequest;
+import com.example.alarms.dto.BulkAlarmResponse;
 import com.example.alarms.dto.AlarmWithTypeAndClass;
 import com.example.alarms.entities.security.SecurityAccount;
 import com.example.alarms.exceptions.InvalidActionException;
 import com.example.alarms.exceptions.RuleProcessingException;
 import com.example.alarms.exceptions.SerializationException;
 import com.example.alarms.exceptions.UserNotFoundException;
+import com.example.alarms.services.AlarmArchiveService;
+import com.example.alarms.services.AlarmBulkService;
+import com.example.alarms.services.AlarmExportService;
+import com.example.alarms.services.AlarmRollupService;
+import com.example.alarms.services.AlarmSearchService;
 import com.example.alarms.services.AlarmService;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import lombok.extern.slf4j.Slf4j;
@@ -14,7 +23,9 @@ import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.ReactiveSecurityContextHolder;
 import org.springframework.security.core.context.SecurityContext;
@@ -23,6 +34,11 @@ import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @Slf4j
 @RestController
 @RequestMapping("/alarms")
@@ -30,9 +46,21 @@ import reactor.core.publisher.Mono;
 public class AlarmController {
 
     private final AlarmService alarmService;
+    private final AlarmArchiveService alarmArchiveService;
+    private final AlarmRollupService alarmRollupService;
+    private final AlarmBulkService alarmBulkService;
+    private final AlarmSearchService alarmSearchService;
+    private final AlarmExportService alarmExportService;
 
-    public AlarmController(AlarmService alarmService) {
+    public AlarmController(AlarmService alarmService, AlarmArchiveService alarmArchiveService,
+                           AlarmRollupService alarmRollupService, AlarmBulkService alarmBulkService,
+                           AlarmSearchService alarmSearchService, AlarmExportService alarmExportService) {
         this.alarmService = alarmService;
+        this.alarmArchiveService = alarmArchiveService;
+        this.alarmRollupService = alarmRollupService;
+        this.alarmBulkService = alarmBulkService;
+        this.alarmSearchService = alarmSearchService;
+        this.alarmExportService = alarmExportService;
     }
 
     // Create or update an alarm
@@ -160,4 +188,132 @@ public class AlarmController {
         return alarmService.getAll();
     }
 
+    // Streams all matching alarms, one JSON object per line with Accept: application/x-ndjson,
+    // otherwise as one JSON array written while it is read. Leave out archived to get alarms in either state.
+    @GetMapping(path = "/export", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Flux<AlarmWithTypeAndClass> export(
+            @RequestParam(required = false) Long ruleId,
+            @RequestParam(required = false) Long alarmTypeId,
+            @RequestParam(required = false) Long alarmClassId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Boolean archived,
+            @RequestParam(defaultValue = "false") boolean archive) {
+
+        AlarmSearchService.Filter filter = new AlarmSearchService.Filter(ruleId, alarmTypeId, alarmClassId, from, to);
+        return alarmExportService.export(filter, archived, archive);
+    }
+
+    // Full-text search, newest first, pass nextCursor of a page as cursor to get the next one
+    @GetMapping("/search")
+    public Mono<AlarmSearchPage> search(
+            @RequestParam String q,
+            @RequestParam(required = false) Long ruleId,
+            @RequestParam(required = false) Long alarmTypeId,
+            @RequestParam(required = false) Long alarmClassId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean archive) {
+
+        if (size <= 0 || size > 100) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page size must be between 1 and 100");
+        }
+
+        AlarmSearchService.Filter filter = new AlarmSearchService.Filter(ruleId, alarmTypeId, alarmClassId, from, to);
+        return alarmSearchService.search(q, filter, cursor, size, archive)
+                .onErrorMap(InvalidActionException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e));
+    }
+
+    // Alarm counts per hour or day from the roll-up, e.g. ?groupBy=type,class&bucket=day, last 24 hours by default
+    @GetMapping("/stats")
+    public Flux<AlarmStatsPoint> getStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = AlarmRollupService.BUCKET_HOUR) String bucket,
+            @RequestParam(defaultValue = "") String groupBy,
+            @RequestParam(required = false) Long ruleId,
+            @RequestParam(required = false) Long alarmTypeId,
+            @RequestParam(required = false) Long alarmClassId) {
+
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusHours(24);
+        Set<String> dimensions = Arrays.stream(groupBy.split(","))
+                .map(String::trim)
+                .filter(dimension -> !dimension.isEmpty())
+                .collect(Collectors.toSet());
+
+        return alarmRollupService.getTimeSeries(start, end, bucket, dimensions, ruleId, alarmTypeId, alarmClassId)
+                .onErrorMap(InvalidActionException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e));
+    }
+
+    // Get archived alarms with pagination, newest first
+    @GetMapping("/archive")
+    public Flux<AlarmResponse> getArchivedAlarmsPage(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+
+        if (page < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page index must be greater than or equal to 0");
+        }
+        if (size <= 0 || size > 100) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page size must be between 1 and 100");
+        }
+
+        return alarmArchiveService.getAllWithPagination(PageRequest.of(page, size));
+    }
+
+    // Get archived alarm by ID
+    @GetMapping("/archive/{id}")
+    public Mono<AlarmResponse> getArchivedAlarmById(@PathVariable Long id) {
+        return alarmArchiveService.getById(id)
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Archived alarm not found")));
+    }
+
+    // Bulk operations, select alarms by ids or by a filter, e.g. {"alarmTypeId": 3, "createdTo": "2025-01-01T00:00:00"}
+    @PostMapping("/bulk/acknowledge")
+    public Mono<BulkAlarmResponse> bulkAcknowledge(@RequestBody BulkAlarmRequest request) {
+        return currentUserId()
+                .flatMap(userId -> alarmBulkService.acknowledge(request, userId))
+                .onErrorMap(this::toBulkError);
+    }
+
+    @PostMapping("/bulk/archive")
+    public Mono<BulkAlarmResponse> bulkArchive(@RequestBody BulkAlarmRequest request) {
+        return currentUserId()
+                .flatMap(userId -> alarmBulkService.archive(request, userId))
+                .onErrorMap(this::toBulkError);
+    }
+
+    @PostMapping("/bulk/reassign")
+    public Mono<BulkAlarmResponse> bulkReassign(@RequestBody BulkAlarmRequest request) {
+        return alarmBulkService.reassign(request)
+                .onErrorMap(this::toBulkError);
+    }
+
+    private Mono<Long> currentUserId() {
+        return ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .map(Authentication::getPrincipal)
+                .flatMap(authentication -> authentication instanceof SecurityAccount sc && sc.getAccount().getId() != null
+                        ? Mono.just(sc.getAccount().getId())
+                        : Mono.error(new UserNotFoundException("User ID is null")));
+    }
+
+    private Throwable toBulkError(Throwable e) {
+        switch (e) {
+            case UserNotFoundException userNotFoundException -> {
+                return new ResponseStatusException(HttpStatus.UNAUTHORIZED, e.getMessage(), e);
+            }
+            case InvalidActionException invalidActionException -> {
+                return new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+            }
+            case null, default -> {
+                log.error("Unexpected error during bulk alarm operation", e);
+                return new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                        "An error occurred while updating the alarms", e);
+            }
+        }
+    }
 }
@@ -26,6 +26,8 @@ import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Map;
+
 @Slf4j
 @RequestMapping("/jobs")
 @RestController
@@ -261,6 +263,13 @@ public class JobController {
                 });
     }
 
+    @GetMapping(value = "/{id}/stats", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<Map<String, Object>> getStats(@PathVariable Long id) {
+        return coordinator.getActionStats(id)
+                .switchIfEmpty(Mono.error(new ResponseStatusException(
+                        HttpStatus.NOT_FOUND, "Action not running on this instance: " + id)));
+    }
+
     @GetMapping(value = "/{id}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Mono<ActionResponse> get(@PathVariable Long id) {
         if (id == null) {
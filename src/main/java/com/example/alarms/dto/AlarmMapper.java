@@ -1,18 +1,37 @@
 package com.example.alarms.dto;
 
 import com.example.alarms.entities.AlarmEntity;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
 @Component
 public class AlarmMapper {
+
+    // metadata of at least this many bytes is stored compressed, 0 turns compression off
+    private final int compressionThreshold;
+
+    public AlarmMapper(Environment env) {
+        this.compressionThreshold = Integer.parseInt(env.getProperty("ALARM_COMPRESSION_THRESHOLD_BYTES", "1024"));
+    }
+
+    /**
+     * Stored form of alarm metadata, see {@link PayloadCompression}.
+     */
+    public String compressMetadata(String metadata) {
+        return PayloadCompression.compressText(metadata, compressionThreshold);
+    }
+
     public AlarmEntity toEntity(AlarmRequest dto) {
         AlarmEntity entity = new AlarmEntity();
         entity.setId(dto.getId());
         entity.setRuleId(dto.getRuleId());
         entity.setMessage(dto.getMessage());
-        entity.setArchived(dto.getArchived());
-        entity.setMetadata(dto.getMetadata());
+        entity.setArchived(Boolean.TRUE.equals(dto.getArchived()));
+        entity.setMetadata(compressMetadata(dto.getMetadata()));
         entity.setRelation(dto.getRelation());
+        entity.setSubject(dto.getSubject());
+        entity.setSender(dto.getSender());
+        entity.setReceivedAt(dto.getReceivedAt());
         entity.setStatus(dto.getStatus());
         entity.setAlarmTypeId(dto.getAlarmTypeId());
         entity.setAlarmClassId(dto.getAlarmClassId());
@@ -26,13 +45,18 @@ public class AlarmMapper {
         dto.setId(entity.getId());
         dto.setRuleId(entity.getRuleId());
         dto.setMessage(entity.getMessage());
-        dto.setMetadata(entity.getMetadata());
+        dto.setMetadata(PayloadCompression.decompressText(entity.getMetadata()));
         dto.setRelation(entity.getRelation());
+        dto.setSubject(entity.getSubject());
+        dto.setSender(entity.getSender());
+        dto.setReceivedAt(entity.getReceivedAt());
         dto.setStatus(entity.getStatus());
         dto.setAlarmTypeId(entity.getAlarmTypeId());
         dto.setAlarmClassId(entity.getAlarmClassId());
         dto.setCreatedDate(entity.getCreatedDate());
         dto.setUpdatedAt(entity.getUpdatedAt());
+        dto.setOccurrenceCount(entity.getOccurrenceCount());
+        dto.setLastSeenAt(entity.getLastSeenAt());
         return dto;
     }
 }
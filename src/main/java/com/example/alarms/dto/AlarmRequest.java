@@ -20,6 +20,10 @@ public class AlarmRequest {
     private String createdFrom;
     private String metadata;
     private String relation;
+    private String subject;
+    private String sender;
+    private LocalDateTime receivedAt;
+    private String body;
     private Long alarmTypeId;
     private Long alarmClassId;
     private LocalDateTime createdDate;
@@ -1,5 +1,6 @@
 package com.example.alarms.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -19,9 +20,17 @@ public class AlarmResponse {
     private String createdFrom;
     private String metadata;
     private String relation;
+    private String subject;
+    private String sender;
+    private LocalDateTime receivedAt;
+    // only set on detail views, listings leave it out
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String body;
     private Long alarmTypeId;
     private Long alarmClassId;
     private LocalDateTime createdDate;
     private LocalDateTime updatedAt;
+    private Integer occurrenceCount;
+    private LocalDateTime lastSeenAt;
 }
 
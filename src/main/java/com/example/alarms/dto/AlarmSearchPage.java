@@ -0,0 +1,20 @@
+package com.example.alarms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * A page of search results, newest first. Pass nextCursor as cursor to get the next page, null on the last page.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlarmSearchPage {
+    private List<AlarmResponse> items;
+    private Long nextCursor;
+}
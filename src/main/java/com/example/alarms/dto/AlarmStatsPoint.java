@@ -0,0 +1,24 @@
+package com.example.alarms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * One point of an alarm count time series, dimensions that are not grouped by are null.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlarmStatsPoint {
+    private LocalDateTime bucketStart;
+    private Long ruleId;
+    private Long alarmTypeId;
+    private Long alarmClassId;
+    private Long alarmCount;
+    private Long occurrenceCount;
+}
@@ -0,0 +1,35 @@
+package com.example.alarms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Selects the alarms of a bulk operation, either by ids or by a filter. Filter fields are combined with AND.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkAlarmRequest {
+    private List<Long> ids;
+
+    private Long ruleId;
+    private Long alarmTypeId;
+    private Long alarmClassId;
+    private String status;
+    private LocalDateTime createdFrom;
+    private LocalDateTime createdTo;
+
+    // reassign only, account the alarms are assigned to
+    private Long assigneeId;
+
+    public boolean hasFilter() {
+        return ruleId != null || alarmTypeId != null || alarmClassId != null || status != null
+                || createdFrom != null || createdTo != null;
+    }
+}
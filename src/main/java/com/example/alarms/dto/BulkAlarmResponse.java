@@ -0,0 +1,15 @@
+package com.example.alarms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkAlarmResponse {
+    private String operation;
+    private Long affected;
+}
@@ -1,5 +1,7 @@
 package com.example.alarms.dto;
 
+import com.example.alarms.metrics.TraceContext;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -20,4 +22,20 @@ public class Notification {
     private Long alarmClassId;
     private String status;
     private String note;
+
+    // Stage timestamps in epoch millis, see TraceContext
+    private String traceId;
+    private Long receivedAt;
+    private Long polledAt;
+    private Long detectedAt;
+
+    @JsonIgnore
+    private TraceContext trace;
+
+    public void applyTrace(TraceContext trace) {
+        this.trace = trace;
+        this.traceId = trace.getTraceId();
+        this.polledAt = trace.getPolledAt();
+        this.detectedAt = System.currentTimeMillis();
+    }
 }
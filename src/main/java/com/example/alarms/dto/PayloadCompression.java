@@ -0,0 +1,76 @@
+package com.example.alarms.dto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * GZIP compression of stored alarm payloads, done in the application instead of on the database server.
+ * <p>
+ * Output is plain GZIP, the same format as the COMPRESS and DECOMPRESS functions of SQL Server, so rows
+ * written by either side stay readable by both. Text columns get a marker prefix in front of the Base64
+ * encoded data, values without it are read as they are.
+ */
+public class PayloadCompression {
+
+    public static final String TEXT_MARKER = "gz1:";
+
+    public static byte[] compress(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(32, data.length / 4));
+        try (GZIPOutputStream gzip = new FastGZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error compressing payload", e);
+        }
+        return out.toByteArray();
+    }
+
+    public static byte[] decompress(byte[] data) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return gzip.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error decompressing payload", e);
+        }
+    }
+
+    /**
+     * Compresses text of at least threshold UTF-8 bytes, when that makes it shorter.
+     */
+    public static String compressText(String text, int threshold) {
+        if (text == null || threshold <= 0 || text.length() * 3 < threshold) {
+            return text;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < threshold) {
+            return text;
+        }
+        String compressed = TEXT_MARKER + Base64.getEncoder().encodeToString(compress(bytes));
+        return compressed.length() < text.length() ? compressed : text;
+    }
+
+    public static String decompressText(String text) {
+        if (text == null || !text.startsWith(TEXT_MARKER)) {
+            return text;
+        }
+        byte[] compressed = Base64.getDecoder().decode(text.substring(TEXT_MARKER.length()));
+        return new String(decompress(compressed), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * GZIP stream favouring speed, payloads are compressed on the alarm write path.
+     */
+    private static class FastGZIPOutputStream extends GZIPOutputStream {
+
+        FastGZIPOutputStream(OutputStream out) throws IOException {
+            super(out);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+    }
+}
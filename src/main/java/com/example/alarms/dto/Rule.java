@@ -3,6 +3,7 @@ package com.example.alarms.dto;
 import com.example.alarms.rules.DetectMissingEmail.DetectMissingEmailDefinition;
 import com.example.alarms.rules.FindPatternInEws.FindPatternInEwsDefinition;
 import com.example.alarms.rules.FindPatternInGmail.FindPatternInGmailDefinition;
+import com.example.alarms.rules.engine.RuleDefinition;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -16,7 +17,7 @@ import java.util.List; /**
 public class Rule {
     @Schema(description = "Name of the rule defining its behavior",
             example = "FindPatternInEws",
-            allowableValues = {"FindPatternInEws","FindPatternInGmail","DetectMissingEmail"},
+            allowableValues = {"FindPatternInEws","FindPatternInGmail","DetectMissingEmail","Declarative"},
             required = true)
     private String name;
 
@@ -26,7 +27,8 @@ public class Rule {
             oneOf = {
                     FindPatternInEwsDefinition.class,
                     FindPatternInGmailDefinition.class,
-                    DetectMissingEmailDefinition.class
+                    DetectMissingEmailDefinition.class,
+                    RuleDefinition.class
             }
     )
     @JsonTypeInfo(
@@ -37,7 +39,8 @@ public class Rule {
     @JsonSubTypes({
             @JsonSubTypes.Type(value = FindPatternInEwsDefinition.class, name = "FindPatternInEws"),
             @JsonSubTypes.Type(value = FindPatternInGmailDefinition.class, name = "FindPatternInGmail"),
-            @JsonSubTypes.Type(value = DetectMissingEmailDefinition.class, name = "DetectMissingEmail")
+            @JsonSubTypes.Type(value = DetectMissingEmailDefinition.class, name = "DetectMissingEmail"),
+            @JsonSubTypes.Type(value = RuleDefinition.class, name = "Declarative")
     })
     private Object definition;
 
@@ -29,6 +29,16 @@ public class AlarmEntity {
     private String metadata;
     private String relation;
 
+    // Mail the alarm was raised for, the body is stored in alarm_bodies
+    private String subject;
+    private String sender;
+    private LocalDateTime receivedAt;
+
+    // Deduplication, repeats of the same alarm only bump the counter and last seen time
+    private String fingerprint;
+    private Integer occurrenceCount = 1;
+    private LocalDateTime lastSeenAt;
+
     @Column("type_id")
     private Long alarmTypeId;
 
@@ -28,4 +28,7 @@ public class ReservationEntity {
     private LocalDateTime createdDate;
 
     private LocalDateTime locked_at;
+
+    // Mailbox position of the action, see Action#getCheckpoint()
+    private String checkpoint;
 }
@@ -0,0 +1,26 @@
+package com.example.alarms.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table("rule_state")
+public class RuleStateEntity {
+
+    @Id
+    private Long ruleId;
+
+    // JSON written by the rule, opaque to the rest of the application
+    private String state;
+
+    private LocalDateTime updatedAt;
+}
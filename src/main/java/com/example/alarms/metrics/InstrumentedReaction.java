@@ -0,0 +1,62 @@
+package com.example.alarms.metrics;
+
+import com.example.alarms.dto.Notification;
+import com.example.alarms.reactions.Reaction;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * Records latency and failures of the wrapped reaction, as a child observation of the message trace.
+ */
+public class InstrumentedReaction implements Reaction {
+
+    private final Reaction delegate;
+    private final PipelineMetrics metrics;
+    private final ObservationRegistry observationRegistry;
+    private final String type;
+
+    public InstrumentedReaction(Reaction delegate, PipelineMetrics metrics, ObservationRegistry observationRegistry) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.observationRegistry = observationRegistry;
+        this.type = delegate.getType();
+    }
+
+    @Override
+    public Long getRuleId() {
+        return delegate.getRuleId();
+    }
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public boolean isRetryable(Throwable error) {
+        return delegate.isRetryable(error);
+    }
+
+    @Override
+    public Mono<Void> execute(Notification notification) {
+        return Mono.defer(() -> {
+            Observation observation = Observation.createNotStarted("alarms.reaction", observationRegistry)
+                    .lowCardinalityKeyValue("reaction.type", type)
+                    .highCardinalityKeyValue("alarms.trace_id", String.valueOf(notification.getTraceId()));
+            if (notification.getTrace() != null) {
+                observation.parentObservation(notification.getTrace().getObservation());
+            }
+
+            long start = System.nanoTime();
+            observation.start();
+            return delegate.execute(notification)
+                    .doOnSuccess(__ -> metrics.recordReaction(type, System.nanoTime() - start, true))
+                    .doOnError(e -> {
+                        observation.error(e);
+                        metrics.recordReaction(type, System.nanoTime() - start, false);
+                    })
+                    .doFinally(__ -> observation.stop());
+        });
+    }
+}
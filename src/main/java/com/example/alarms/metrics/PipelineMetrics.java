@@ -0,0 +1,196 @@
+package com.example.alarms.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Metrics of the mailbox monitoring pipeline: coordinator -> action -> rule -> reaction -> alarm write.
+ * <p>
+ * Tags are limited to component types (EwsAction, FindPatternInEws, SendEmailReaction...) and outcomes,
+ * never to action, rule or alarm ids, to keep the number of time series bounded.
+ */
+@Component
+public class PipelineMetrics {
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_FAILURE = "failure";
+
+    private final MeterRegistry registry;
+    private final AtomicInteger pendingAlarmWrites = new AtomicInteger();
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+
+        Gauge.builder("alarms.alarm.write.queue", pendingAlarmWrites, AtomicInteger::get)
+                .description("Alarm writes submitted but not yet persisted")
+                .register(registry);
+    }
+
+    // Coordinator
+
+    public void registerOwnedJobs(Supplier<Number> ownedJobs) {
+        Gauge.builder("alarms.coordinator.jobs.owned", ownedJobs)
+                .description("Jobs currently owned by this instance")
+                .register(registry);
+    }
+
+    public void recordClaim(boolean won) {
+        Counter.builder("alarms.coordinator.claims")
+                .description("Job claim attempts")
+                .tag("result", won ? "won" : "lost")
+                .register(registry)
+                .increment();
+    }
+
+    public void recordHeartbeat(long nanos, boolean success) {
+        timer("alarms.coordinator.heartbeat", "Reservation heartbeat update latency")
+                .tag("outcome", success ? OUTCOME_SUCCESS : OUTCOME_FAILURE)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Actions
+
+    public void recordActionExecution(String actionType, long nanos, boolean success) {
+        timer("alarms.action.execute", "Action execute() latency including rule evaluation")
+                .tag("type", actionType)
+                .tag("outcome", success ? OUTCOME_SUCCESS : OUTCOME_FAILURE)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordActionMessage(String actionType) {
+        Counter.builder("alarms.action.messages")
+                .description("Messages emitted by actions")
+                .tag("type", actionType)
+                .register(registry)
+                .increment();
+    }
+
+    public void recordTickDrift(String actionType, long driftMillis) {
+        timer("alarms.action.tick.drift", "Delay between scheduled and actual tick start")
+                .tag("type", actionType)
+                .register(registry)
+                .record(Duration.ofMillis(driftMillis));
+    }
+
+    public void recordTickSkipped(String actionType) {
+        Counter.builder("alarms.action.tick.skipped")
+                .description("Ticks skipped because the previous execution was still running")
+                .tag("type", actionType)
+                .register(registry)
+                .increment();
+    }
+
+    public void recordTickOverrun(String actionType) {
+        Counter.builder("alarms.action.tick.overruns")
+                .description("Executions that took longer than the action interval")
+                .tag("type", actionType)
+                .register(registry)
+                .increment();
+    }
+
+    public void registerHostPermitsInUse(Supplier<Number> permitsInUse) {
+        Gauge.builder("alarms.action.host.permits.in_use", permitsInUse)
+                .description("Mailbox executions currently holding a host permit, over all hosts")
+                .register(registry);
+    }
+
+    public void recordEwsThrottled() {
+        Counter.builder("alarms.action.ews.throttled")
+                .description("EWS calls rejected with ErrorServerBusy")
+                .register(registry)
+                .increment();
+    }
+
+    // Rules
+
+    public void recordRuleEvaluation(String ruleType, long nanos) {
+        timer("alarms.rule.evaluation", "Rule evaluation time per message")
+                .tag("type", ruleType)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRuleMatch(String ruleType) {
+        Counter.builder("alarms.rule.matches")
+                .description("Rule matches that triggered reactions")
+                .tag("type", ruleType)
+                .register(registry)
+                .increment();
+    }
+
+    // Reactions
+
+    public void recordReaction(String reactionType, long nanos, boolean success) {
+        timer("alarms.reaction.execute", "Reaction latency")
+                .tag("type", reactionType)
+                .tag("outcome", success ? OUTCOME_SUCCESS : OUTCOME_FAILURE)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Message trace, see TraceContext
+
+    /**
+     * Records the latency of a trace stage: poll (mail received -> picked up by the action),
+     * detect (picked up -> rule matched), persist (matched -> alarm row written) and end_to_end.
+     */
+    public void recordTraceStage(String stage, Long fromMillis, Long toMillis) {
+        if (fromMillis == null || toMillis == null || toMillis < fromMillis) {
+            return;
+        }
+        timer("alarms.trace.stage", "Latency of a stage between mailbox event and persisted alarm")
+                .tag("stage", stage)
+                .register(registry)
+                .record(Duration.ofMillis(toMillis - fromMillis));
+    }
+
+    // Alarm writes
+
+    public void alarmWriteSubmitted() {
+        pendingAlarmWrites.incrementAndGet();
+    }
+
+    public void alarmWriteFinished() {
+        pendingAlarmWrites.decrementAndGet();
+    }
+
+    /**
+     * @param outcome inserted for a new alarm row, suppressed for a repeat folded into an open alarm
+     */
+    public void recordAlarmDedup(String outcome) {
+        Counter.builder("alarms.alarm.dedup")
+                .description("Alarm writes by deduplication outcome")
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+
+    public void registerOpenAlarms(Supplier<Number> openAlarms) {
+        Gauge.builder("alarms.alarm.dedup.open", openAlarms)
+                .description("Open alarms in the deduplication index")
+                .register(registry);
+    }
+
+    public void recordAlarmsArchived(long count) {
+        Counter.builder("alarms.alarm.archived")
+                .description("Alarms moved to the archive table")
+                .register(registry)
+                .increment(count);
+    }
+
+    private Timer.Builder timer(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram();
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.alarms.metrics;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Correlation context of a single mailbox message travelling through
+ * action -> rule -> reaction -> alarm write.
+ * <p>
+ * The observation is the parent of the reaction observations, so with tracing
+ * enabled the whole path of a message shows up as one trace.
+ */
+@Getter
+public class TraceContext {
+
+    private final String traceId;
+    private final long polledAt;
+    private final Observation observation;
+
+    private TraceContext(String traceId, long polledAt, Observation observation) {
+        this.traceId = traceId;
+        this.polledAt = polledAt;
+        this.observation = observation;
+    }
+
+    public static TraceContext start(ObservationRegistry registry, String actionType) {
+        Observation observation = Observation.createNotStarted("alarms.message", registry)
+                .lowCardinalityKeyValue("action.type", actionType)
+                .start();
+        return new TraceContext(UUID.randomUUID().toString(), System.currentTimeMillis(), observation);
+    }
+
+    public static TraceContext none() {
+        return new TraceContext(UUID.randomUUID().toString(), System.currentTimeMillis(), Observation.NOOP);
+    }
+
+    public void stop() {
+        observation.stop();
+    }
+}
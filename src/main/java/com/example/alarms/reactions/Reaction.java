@@ -1,8 +1,45 @@
 package com.example.alarms.reactions;
 
 import com.example.alarms.dto.Notification;
+import reactor.core.publisher.Mono;
+
+import java.net.ConnectException;
+import java.net.UnknownHostException;
 
 public interface Reaction {
     Long getRuleId();
-    void execute(Notification notification);
+
+    /**
+     * Executes the reaction, completing once it is done. Blocking work has to be
+     * moved off the calling thread by the implementation.
+     */
+    Mono<Void> execute(Notification notification);
+
+    /**
+     * Reaction type used to group executions and tag metrics.
+     */
+    default String getType() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Whether a failed execution may run again. Reactions are not retried unless they opt in, running a
+     * reaction again after its side effect happened (a sent mail, a committed insert) would repeat it.
+     * Executions that timed out are never retried.
+     */
+    default boolean isRetryable(Throwable error) {
+        return false;
+    }
+
+    /**
+     * True if the error comes from a connection that could not be opened, so nothing was sent yet.
+     */
+    static boolean isConnectFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof UnknownHostException) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -1,6 +1,8 @@
 package com.example.alarms.reactions.SendEmailReaction;
 
 import com.example.alarms.components.ApplicationContextProvider;
+import com.example.alarms.components.BlockingIoExecutor;
+import com.example.alarms.components.ReactionPipeline;
 import com.example.alarms.dto.Notification;
 import com.example.alarms.reactions.Reaction;
 import com.example.alarms.services.EmailService;
@@ -10,6 +12,7 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.thymeleaf.context.Context;
+import reactor.core.publisher.Mono;
 
 @Slf4j
 public class SendEmailReaction implements Reaction {
@@ -17,11 +20,15 @@ public class SendEmailReaction implements Reaction {
     private SendEmailReactionParams parsedParams;
 
     private final EmailService emailService;
+    private final BlockingIoExecutor blockingIoExecutor;
+    private final ReactionPipeline reactionPipeline;
     private final Long ruleId;
 
     public SendEmailReaction(String params, String name, Long ruleId) {
         this.ruleId = ruleId;
         this.emailService = ApplicationContextProvider.getApplicationContext().getBean(EmailService.class);
+        this.blockingIoExecutor = ApplicationContextProvider.getApplicationContext().getBean(BlockingIoExecutor.class);
+        this.reactionPipeline = ApplicationContextProvider.getApplicationContext().getBean(ReactionPipeline.class);
 
         mapParamsToFields(params);
     }
@@ -40,8 +47,17 @@ public class SendEmailReaction implements Reaction {
         return this.ruleId;
     }
 
+    // only when the SMTP server was not reached, otherwise the mail may already be on its way
     @Override
-    public void execute(Notification notification) {
+    public boolean isRetryable(Throwable error) {
+        return Reaction.isConnectFailure(error);
+    }
+
+    @Override
+    public Mono<Void> execute(Notification notification) {
+        // SMTP is blocking, send on the blocking I/O executor. A send that outlives the pipeline's timeout
+        // keeps its worker until the SMTP timeouts end it, so hung sends stay within the type's concurrency
+        return blockingIoExecutor.run(getType(), reactionPipeline.concurrencyFor(getType()), () -> {
             log.info("Send email to {} with message: {}", parsedParams.getEmailAddress(), notification.getMessage());
 
             Context context = new Context();
@@ -52,5 +68,6 @@ public class SendEmailReaction implements Reaction {
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
+        });
     }
 }
@@ -1,22 +1,33 @@
 package com.example.alarms.reactions;
 
+import com.example.alarms.components.AlarmDeduplicator;
 import com.example.alarms.components.ApplicationContextProvider;
 import com.example.alarms.dto.AlarmRequest;
+import com.example.alarms.dto.JsonUtils;
 import com.example.alarms.dto.Notification;
-import com.example.alarms.services.AlarmService;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.alarms.metrics.PipelineMetrics;
+import io.r2dbc.spi.R2dbcTransientResourceException;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Slf4j
 public class WriteAlarmToDBReaction implements Reaction{
 
     private final Long ruleId;
 
-    private final AlarmService alarmService;
+    private final AlarmDeduplicator alarmDeduplicator;
+    private final PipelineMetrics metrics;
 
     public WriteAlarmToDBReaction(Long ruleId) {
         this.ruleId = ruleId;
-        this.alarmService = ApplicationContextProvider.getApplicationContext().getBean(AlarmService.class);
+        this.alarmDeduplicator = ApplicationContextProvider.getApplicationContext().getBean(AlarmDeduplicator.class);
+        this.metrics = ApplicationContextProvider.getApplicationContext().getBean(PipelineMetrics.class);
     }
 
     @Override
@@ -24,21 +35,55 @@ public class WriteAlarmToDBReaction implements Reaction{
         return this.ruleId;
     }
 
+    // only when no connection was obtained, a failed commit may still have written the row
     @Override
-    public void execute(Notification notification) {
+    public boolean isRetryable(Throwable error) {
+        return Reaction.isConnectFailure(error) || error instanceof R2dbcTransientResourceException;
+    }
 
-        try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            String jsonString = objectMapper.writeValueAsString(notification);
+    @Override
+    public Mono<Void> execute(Notification notification) {
+        return Mono.defer(() -> {
             AlarmRequest alarm = new AlarmRequest();
             alarm.setRuleId(notification.getRuleId());
             alarm.setAlarmTypeId(notification.getAlarmTypeId());
             alarm.setAlarmClassId(notification.getAlarmClassId());
-            alarm.setMessage(jsonString);
-            alarmService.save(alarm)
-                    .subscribe();
-        } catch (Exception e) {
-            log.error("Failed to write alarm into database");
-        }
+            alarm.setMessage(notification.getMessage() != null ? notification.getMessage() : "");
+            alarm.setSubject(notification.getSubject());
+            alarm.setSender(notification.getSender());
+            alarm.setBody(notification.getBody());
+            if (notification.getReceivedAt() != null) {
+                alarm.setReceivedAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(notification.getReceivedAt()), ZoneId.systemDefault()));
+            }
+
+            // the row is written after this, its persist time is the alarm's created_date
+            long submittedAt = System.currentTimeMillis();
+            alarm.setMetadata(JsonUtils.toJson(traceMetadata(notification, submittedAt)));
+
+            metrics.alarmWriteSubmitted();
+            return alarmDeduplicator.write(notification, alarm)
+                    .doOnSuccess(__ -> recordTraceStages(notification, System.currentTimeMillis()))
+                    .doFinally(__ -> metrics.alarmWriteFinished())
+                    .then();
+        });
+    }
+
+    private Map<String, Object> traceMetadata(Notification notification, long submittedAt) {
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("traceId", notification.getTraceId());
+        metadata.put("receivedAt", notification.getReceivedAt());
+        metadata.put("polledAt", notification.getPolledAt());
+        metadata.put("detectedAt", notification.getDetectedAt());
+        metadata.put("submittedAt", submittedAt);
+        return metadata;
+    }
+
+    private void recordTraceStages(Notification notification, long persistedAt) {
+        metrics.recordTraceStage("poll", notification.getReceivedAt(), notification.getPolledAt());
+        metrics.recordTraceStage("detect", notification.getPolledAt(), notification.getDetectedAt());
+        metrics.recordTraceStage("persist", notification.getDetectedAt(), persistedAt);
+        metrics.recordTraceStage("end_to_end",
+                notification.getReceivedAt() != null ? notification.getReceivedAt() : notification.getPolledAt(),
+                persistedAt);
     }
 }
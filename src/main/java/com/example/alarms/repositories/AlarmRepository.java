@@ -2,13 +2,40 @@ package com.example.alarms.repositories;
 
 import com.example.alarms.entities.AlarmEntity;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
+
 @Repository
 public interface AlarmRepository extends ReactiveCrudRepository<AlarmEntity, Long> {
     Flux<AlarmEntity> findAllBy(Pageable pageable);
+
+    // archived = 0 seeks on ix_alarms_archived_created_date instead of filtering every row in memory
+    Flux<AlarmEntity> findByArchivedFalse();
+
+    Flux<AlarmEntity> findByArchivedFalse(Pageable pageable);
+
+    @Query("""
+        SELECT TOP(1) id FROM alarms 
+        WHERE fingerprint = :fingerprint 
+        AND created_date >= :since 
+        AND (archived IS NULL OR archived = 0) 
+        ORDER BY id DESC
+    """)
+    Mono<Long> findOpenIdByFingerprint(String fingerprint, LocalDateTime since);
+
+    @Modifying
+    @Query("""
+        UPDATE alarms 
+        SET occurrence_count = COALESCE(occurrence_count, 1) + 1, 
+            last_seen_at = :lastSeenAt 
+        WHERE id = :id 
+        AND (archived IS NULL OR archived = 0)
+    """)
+    Mono<Integer> recordOccurrence(Long id, LocalDateTime lastSeenAt);
 }
@@ -2,6 +2,8 @@ package com.example.alarms.repositories;
 
 import com.example.alarms.entities.ReactionEntity;
 import org.reactivestreams.Publisher;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
@@ -13,4 +15,8 @@ public interface ReactionRepository extends ReactiveCrudRepository<ReactionEntit
 
     Mono<Void> deleteByRuleId(Long id);
 
+    @Modifying
+    @Query("DELETE x FROM reactions x JOIN rules r ON r.id = x.rule_id WHERE r.action_id = :actionId")
+    Mono<Integer> deleteByActionId(Long actionId);
+
 }
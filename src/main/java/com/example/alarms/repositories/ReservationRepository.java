@@ -41,16 +41,23 @@ public interface ReservationRepository extends ReactiveCrudRepository<Reservatio
                                 LocalDateTime now, LocalDateTime timeoutThreshold);
 
     @Modifying
-    @Query("UPDATE reservations SET locked_at = :now WHERE id = :jobId AND locked_by = :instanceId")
-    Mono<Void> updateHeartbeat(Long jobId, String instanceId, LocalDateTime now);
+    @Query("""
+        UPDATE reservations 
+        SET locked_at = :now, 
+            checkpoint = COALESCE(:checkpoint, checkpoint) 
+        WHERE id = :jobId 
+        AND locked_by = :instanceId
+    """)
+    Mono<Void> updateHeartbeat(Long jobId, String instanceId, LocalDateTime now, String checkpoint);
 
     @Modifying
     @Query("""
         UPDATE reservations 
         SET status = 'pending', 
-            locked_by = NULL 
+            locked_by = NULL, 
+            checkpoint = COALESCE(:checkpoint, checkpoint) 
         WHERE id = :jobId 
         AND locked_by = :instanceId
     """)
-    Mono<Void> releaseJob(Long jobId, String instanceId);
+    Mono<Void> releaseJob(Long jobId, String instanceId, String checkpoint);
 }
\ No newline at end of file
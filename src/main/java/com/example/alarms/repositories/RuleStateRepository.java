@@ -0,0 +1,16 @@
+package com.example.alarms.repositories;
+
+import com.example.alarms.entities.RuleStateEntity;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface RuleStateRepository extends ReactiveCrudRepository<RuleStateEntity, Long> {
+
+    @Modifying
+    @Query("DELETE s FROM rule_state s JOIN rules r ON r.id = s.rule_id WHERE r.action_id = :actionId")
+    Mono<Integer> deleteByActionId(Long actionId);
+}
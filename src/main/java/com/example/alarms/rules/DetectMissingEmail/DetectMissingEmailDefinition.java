@@ -1,5 +1,6 @@
 package com.example.alarms.rules.DetectMissingEmail;
 
+import com.example.alarms.rules.engine.RuleDefinition;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Data;
@@ -27,6 +28,26 @@ public class DetectMissingEmailDefinition {
     @Schema(description = "Message to display when pattern is found", example = "pattern found", required = true)
     private String alarmMessage;
 
+    /**
+     * Any of the patterns, ignoring case, received within tolerance around point_in_time.
+     */
+    public RuleDefinition toRuleDefinition() {
+        RuleDefinition definition = new RuleDefinition();
+        if (patterns != null) {
+            patterns.forEach(pattern -> definition.getConditions().add(
+                    new RuleDefinition.ConditionDefinition(pattern.getLocation(), pattern.operator(), pattern.getPattern(), false)));
+        }
+        definition.setMatch(RuleDefinition.MATCH_ANY);
+
+        RuleDefinition.AbsenceDefinition absence = new RuleDefinition.AbsenceDefinition();
+        absence.setPointInTime(pointInTime);
+        absence.setTolerance(tolerance != null ? tolerance : 0);
+        definition.setAbsence(absence);
+
+        definition.setAlarmMessage(alarmMessage);
+        return definition;
+    }
+
     @Data
     @Schema(description = "Pattern definition")
     public static class PatternDefinition {
@@ -41,6 +62,16 @@ public class DetectMissingEmailDefinition {
                 allowableValues = {"body", "subject", "sender"},
                 required = true)
         private String location;
+
+        @JsonProperty("kind")
+        @Schema(description = "How the pattern is matched, regex uses RE2 syntax",
+                example = "substring",
+                allowableValues = {"substring", "regex"})
+        private String kind = "substring";
+
+        String operator() {
+            return "regex".equals(kind) ? "regex" : "contains";
+        }
     }
 }
 
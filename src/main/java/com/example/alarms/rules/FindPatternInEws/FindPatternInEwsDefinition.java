@@ -1,5 +1,6 @@
 package com.example.alarms.rules.FindPatternInEws;
 
+import com.example.alarms.rules.engine.RuleDefinition;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
@@ -40,7 +41,30 @@ public class FindPatternInEwsDefinition {
     @Schema(description = "Time in the day when to stop looking for pattern", example = "15:00", required = true)
     private String endTime;
 
+    /**
+     * All patterns have to be found, ignoring case, within start_time and end_time.
+     */
+    public RuleDefinition toRuleDefinition() {
+        RuleDefinition definition = new RuleDefinition();
+        if (patterns != null) {
+            patterns.forEach(pattern -> definition.getConditions().add(
+                    new RuleDefinition.ConditionDefinition(pattern.getLocation(), pattern.operator(), pattern.getPattern(), false)));
+        }
+        definition.setMatch(RuleDefinition.MATCH_ALL);
 
+        RuleDefinition.TimeWindowDefinition timeWindow = new RuleDefinition.TimeWindowDefinition();
+        timeWindow.setStartTime(startTime);
+        timeWindow.setEndTime(endTime);
+        definition.setTimeWindow(timeWindow);
+
+        RuleDefinition.CountDefinition count = new RuleDefinition.CountDefinition();
+        count.setRepetition(repetition);
+        count.setInterval(interval);
+        definition.setCount(count);
+
+        definition.setAlarmMessage(alarmMessage);
+        return definition;
+    }
 
     @Data
     @Schema(description = "Pattern definition")
@@ -56,6 +80,16 @@ public class FindPatternInEwsDefinition {
                 allowableValues = {"body", "subject", "sender"},
                 required = true)
         private String location;
+
+        @JsonProperty("kind")
+        @Schema(description = "How the pattern is matched, regex uses RE2 syntax",
+                example = "substring",
+                allowableValues = {"substring", "regex"})
+        private String kind = "substring";
+
+        String operator() {
+            return "regex".equals(kind) ? "regex" : "contains";
+        }
     }
 }
 
@@ -1,5 +1,6 @@
 package com.example.alarms.rules.FindPatternInGmail;
 
+import com.example.alarms.rules.engine.RuleDefinition;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Data;
@@ -32,4 +33,31 @@ public class FindPatternInGmailDefinition {
             allowableValues = {"body", "subject", "sender"},
             required = true)
     private String location;
+
+    @JsonProperty("kind")
+    @Schema(description = "How the pattern is matched, regex uses RE2 syntax",
+            example = "substring",
+            allowableValues = {"substring", "regex"})
+    private String kind = "substring";
+
+    @JsonProperty("max_body_bytes")
+    @Schema(description = "Maximum number of body bytes fetched for matching, only text parts are read", example = "65536", minimum = "1")
+    private Integer maxBodyBytes = 65536;
+
+    /**
+     * Single case sensitive pattern at location.
+     */
+    public RuleDefinition toRuleDefinition() {
+        RuleDefinition definition = new RuleDefinition();
+        definition.getConditions().add(new RuleDefinition.ConditionDefinition(location, "regex".equals(kind) ? "regex" : "contains", pattern, true));
+
+        RuleDefinition.CountDefinition count = new RuleDefinition.CountDefinition();
+        count.setRepetition(repetition);
+        count.setInterval(interval);
+        definition.setCount(count);
+
+        definition.setMaxBodyBytes(maxBodyBytes);
+        definition.setAlarmMessage(alarmMessage);
+        return definition;
+    }
 }
\ No newline at end of file
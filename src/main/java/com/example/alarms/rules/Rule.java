@@ -1,6 +1,19 @@
 package com.example.alarms.rules;
 
+import com.example.alarms.metrics.TraceContext;
+
+import java.util.Set;
 
 public interface Rule {
-    void execute(Object data);
+    /**
+     * @param trace correlation context of the message, passed on to the notifications created for it
+     */
+    void execute(Object data, TraceContext trace);
+
+    /**
+     * Message fields (body, subject, sender...) the rule reads, used by actions to prefetch only what is needed.
+     */
+    default Set<String> getRequiredFields() {
+        return Set.of();
+    }
 }
@@ -0,0 +1,174 @@
+package com.example.alarms.rules.engine;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Daily absence window of a rule: a matching message is expected within tolerance around point_in_time.
+ * A timer is armed for the close of the window and cancelled when the message arrives, so the alarm
+ * fires at window close instead of on the next action tick. Window state is part of the rule snapshot,
+ * a node taking over the job fires windows that closed while nobody owned it.
+ */
+@Slf4j
+class AbsenceDetector {
+
+    private final Long ruleId;
+    private final LocalTime pointInTime;
+    private final Duration tolerance;
+    private final ZoneId zone;
+    private final Scheduler scheduler;
+    private final Runnable onMissed;
+    private final Runnable onChange;
+
+    private LocalDate windowDate;
+    private boolean messageReceived;
+    private boolean fired;
+    private Disposable timer;
+    private boolean stopped;
+
+    AbsenceDetector(Long ruleId, LocalTime pointInTime, Duration tolerance, Scheduler scheduler,
+                    Runnable onMissed, Runnable onChange) {
+        this.ruleId = ruleId;
+        this.pointInTime = pointInTime;
+        this.tolerance = tolerance;
+        this.zone = ZoneId.systemDefault();
+        this.scheduler = scheduler;
+        this.onMissed = onMissed;
+        this.onChange = onChange;
+    }
+
+    /**
+     * Arms the timer of the open or next window, called after the state has been restored.
+     */
+    void start() {
+        arm();
+    }
+
+    synchronized void stop() {
+        stopped = true;
+        cancelTimer();
+    }
+
+    /**
+     * @return true when a message received at the given time belongs to the open window and is still awaited
+     */
+    synchronized boolean awaits(long receivedAt) {
+        if (windowDate == null || messageReceived || fired) {
+            return false;
+        }
+        ZonedDateTime received = ZonedDateTime.ofInstant(Instant.ofEpochMilli(receivedAt), zone);
+        return !received.isBefore(open(windowDate)) && !received.isAfter(close(windowDate));
+    }
+
+    synchronized void markReceived() {
+        if (messageReceived || fired) {
+            return;
+        }
+        log.debug("Expected message of rule {} received for window {}", ruleId, windowDate);
+        messageReceived = true;
+        cancelTimer();
+        persist();
+        arm();
+    }
+
+    private synchronized void onWindowClosed(LocalDate date) {
+        if (stopped || !date.equals(windowDate)) {
+            return;
+        }
+        if (!messageReceived && !fired) {
+            log.info("Expected message of rule {} missing for window {}", ruleId, windowDate);
+            fired = true;
+            persist();
+            onMissed.run();
+        }
+        arm();
+    }
+
+    synchronized WindowState snapshot() {
+        return new WindowState(windowDate != null ? windowDate.toString() : null, messageReceived, fired);
+    }
+
+    synchronized void restore(WindowState state) {
+        this.windowDate = state.windowDate != null ? LocalDate.parse(state.windowDate) : null;
+        this.messageReceived = state.messageReceived;
+        this.fired = state.fired;
+    }
+
+    /**
+     * Moves to the window that is open or opens next and schedules its close.
+     * A restored window that closed in the meantime without the message fires right away.
+     */
+    private synchronized void arm() {
+        if (stopped) {
+            return;
+        }
+        ZonedDateTime now = ZonedDateTime.now(zone);
+
+        if (windowDate != null && !messageReceived && !fired && !close(windowDate).isAfter(now)) {
+            // window closed while nobody was watching it
+            scheduleClose(windowDate, Duration.ZERO);
+            return;
+        }
+
+        boolean handled = windowDate != null && (messageReceived || fired || !close(windowDate).isAfter(now));
+        if (windowDate == null || handled) {
+            windowDate = nextWindow(now, handled ? windowDate : null);
+            messageReceived = false;
+            fired = false;
+            persist();
+        }
+        scheduleClose(windowDate, Duration.between(now, close(windowDate)));
+    }
+
+    /**
+     * First window closing after now, skipping the one already handled.
+     */
+    private LocalDate nextWindow(ZonedDateTime now, LocalDate handled) {
+        LocalDate date = now.toLocalDate().minusDays(1);
+        while (!close(date).isAfter(now) || (handled != null && !date.isAfter(handled))) {
+            date = date.plusDays(1);
+        }
+        return date;
+    }
+
+    private void scheduleClose(LocalDate date, Duration delay) {
+        cancelTimer();
+        long delayMillis = Math.max(0, delay.toMillis());
+        timer = scheduler.schedule(() -> onWindowClosed(date), delayMillis, TimeUnit.MILLISECONDS);
+        log.debug("Absence window {} of rule {} closes in {} ms", date, ruleId, delayMillis);
+    }
+
+    private void cancelTimer() {
+        if (timer != null) {
+            timer.dispose();
+            timer = null;
+        }
+    }
+
+    private ZonedDateTime open(LocalDate date) {
+        return date.atTime(pointInTime).atZone(zone).minus(tolerance);
+    }
+
+    private ZonedDateTime close(LocalDate date) {
+        return date.atTime(pointInTime).atZone(zone).plus(tolerance);
+    }
+
+    private void persist() {
+        onChange.run();
+    }
+
+    record WindowState(@JsonProperty("window_date") String windowDate,
+                       @JsonProperty("message_received") boolean messageReceived,
+                       @JsonProperty("fired") boolean fired) {
+    }
+}
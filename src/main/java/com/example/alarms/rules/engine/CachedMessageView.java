@@ -0,0 +1,43 @@
+package com.example.alarms.rules.engine;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Base of the message views, caches loaded and lower cased field values.
+ * A view belongs to a single message evaluation and is not thread safe.
+ */
+abstract class CachedMessageView implements MessageView {
+
+    private final Map<String, Optional<String>> values = new HashMap<>();
+    private final Map<String, Optional<String>> lowerCaseValues = new HashMap<>();
+
+    /**
+     * Loads the field from the underlying message.
+     */
+    protected abstract String load(String name) throws Exception;
+
+    @Override
+    public String field(String name) {
+        return values.computeIfAbsent(name, key -> {
+            try {
+                return Optional.ofNullable(load(key));
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to read " + key + ": " + e.getMessage(), e);
+            }
+        }).orElse(null);
+    }
+
+    @Override
+    public String fieldLowerCase(String name) {
+        return lowerCaseValues.computeIfAbsent(name,
+                key -> Optional.ofNullable(field(key)).map(value -> value.toLowerCase(Locale.ROOT))).orElse(null);
+    }
+
+    protected String cached(String name) {
+        Optional<String> value = values.get(name);
+        return value != null ? value.orElse(null) : null;
+    }
+}
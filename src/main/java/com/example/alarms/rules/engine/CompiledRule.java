@@ -0,0 +1,219 @@
+package com.example.alarms.rules.engine;
+
+import com.example.alarms.components.ReactionPipeline;
+import com.example.alarms.dto.Notification;
+import com.example.alarms.metrics.PipelineMetrics;
+import com.example.alarms.metrics.TraceContext;
+import com.example.alarms.reactions.Reaction;
+import com.example.alarms.rules.Rule;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Evaluation plan of a single rule, built by the {@link RuleCompiler} from a {@link RuleDefinition}.
+ * Time windows are parsed once, conditions are shared with the other rules of the action.
+ */
+@Slf4j
+public class CompiledRule implements Rule {
+
+    private static final String DEFAULT_ALARM_MESSAGE = "Pattern found";
+
+    @Getter
+    private final Long ruleId;
+    @Getter
+    private final String name;
+    private final List<Condition> conditions;
+    private final boolean matchAll;
+    private final TimeWindow timeWindow;
+    private final AbsenceDetector absenceDetector;
+    private final int repetition;
+    private final long intervalMillis;
+    private final String alarmMessage;
+    @Getter
+    private final Set<String> requiredFields;
+
+    private final Long alarmTypeId;
+    private final Long alarmClassId;
+    private final List<Reaction> reactions;
+    private final ReactionPipeline reactionPipeline;
+    private final PipelineMetrics metrics;
+    private final RuleStateStore ruleStateStore;
+
+    private final Deque<Long> matchTimestamps = new ArrayDeque<>();
+    @Getter
+    private volatile boolean stopped;
+
+    CompiledRule(Long ruleId, String name, RuleDefinition definition, List<Condition> conditions,
+                 List<Reaction> reactions, Long alarmTypeId, Long alarmClassId, RuleServices services) {
+        this.ruleId = ruleId;
+        this.name = name;
+        this.conditions = conditions;
+        this.matchAll = !RuleDefinition.MATCH_ANY.equalsIgnoreCase(definition.getMatch());
+        this.timeWindow = definition.getTimeWindow() != null
+                ? TimeWindow.of(definition.getTimeWindow().getStartTime(), definition.getTimeWindow().getEndTime())
+                : null;
+        RuleDefinition.AbsenceDefinition absence = definition.getAbsence();
+        this.absenceDetector = absence != null
+                ? new AbsenceDetector(ruleId, LocalTime.parse(absence.getPointInTime()),
+                        Duration.ofSeconds(absence.getTolerance() != null ? absence.getTolerance() : 0),
+                        services.timerScheduler(),
+                        () -> react(createNotification(null, TraceContext.none())),
+                        this::markDirty)
+                : null;
+        RuleDefinition.CountDefinition count = definition.getCount();
+        this.repetition = count != null && count.getRepetition() != null ? count.getRepetition() : 1;
+        this.intervalMillis = count != null && count.getInterval() != null ? count.getInterval() * 1000L : Long.MAX_VALUE;
+        this.alarmMessage = definition.getAlarmMessage() != null ? definition.getAlarmMessage() : DEFAULT_ALARM_MESSAGE;
+        this.requiredFields = conditions.stream().map(Condition::getField).collect(Collectors.toUnmodifiableSet());
+
+        this.alarmTypeId = alarmTypeId;
+        this.alarmClassId = alarmClassId;
+        this.reactions = reactions;
+        this.reactionPipeline = services.reactionPipeline();
+        this.metrics = services.metrics();
+        this.ruleStateStore = services.ruleStateStore();
+    }
+
+    /**
+     * Arms the timers of the rule, called after its state has been restored.
+     */
+    public void start() {
+        if (absenceDetector != null) {
+            absenceDetector.start();
+        }
+    }
+
+    /**
+     * Cancels the timers of the rule when its job stops.
+     */
+    public void stop() {
+        stopped = true;
+        if (absenceDetector != null) {
+            absenceDetector.stop();
+        }
+    }
+
+    synchronized RuleSnapshot snapshot() {
+        return new RuleSnapshot(RuleSnapshot.VERSION,
+                List.copyOf(matchTimestamps),
+                absenceDetector != null ? absenceDetector.snapshot() : null);
+    }
+
+    synchronized void restore(RuleSnapshot snapshot) {
+        matchTimestamps.clear();
+        if (snapshot.matchTimestamps() != null) {
+            matchTimestamps.addAll(snapshot.matchTimestamps());
+        }
+        if (absenceDetector != null && snapshot.absence() != null) {
+            absenceDetector.restore(snapshot.absence());
+        }
+    }
+
+    private void markDirty() {
+        ruleStateStore.markDirty(this);
+    }
+
+    @Override
+    public void execute(Object data, TraceContext trace) {
+        evaluate(new MessageContext(MessageView.of(data, Integer.MAX_VALUE), Long.MAX_VALUE / 2), trace);
+    }
+
+    /**
+     * Evaluates the rule against a message, reusing condition results already in the context.
+     */
+    public void evaluate(MessageContext context, TraceContext trace) {
+        log.debug("Executing rule with id: {}", this.ruleId);
+
+        if (absenceDetector != null) {
+            evaluateAbsence(context);
+            return;
+        }
+
+        if (!context.hasMessage()) {
+            return;
+        }
+
+        if (timeWindow != null && !timeWindow.contains(LocalTime.now())) {
+            return;
+        }
+
+        if (matches(context)) {
+            countMatch(context, trace);
+        }
+    }
+
+    private boolean matches(MessageContext context) {
+        if (conditions.isEmpty()) {
+            // an absence rule without conditions expects any message
+            return absenceDetector != null;
+        }
+        for (Condition condition : conditions) {
+            boolean result = context.test(condition);
+            if (result != matchAll) {
+                return result;
+            }
+        }
+        return matchAll;
+    }
+
+    private synchronized void countMatch(MessageContext context, TraceContext trace) {
+        long currentTime = System.currentTimeMillis();
+
+        matchTimestamps.addLast(currentTime);
+
+        // Remove timestamps outside the interval, they are ordered so only the head needs checking
+        while (!matchTimestamps.isEmpty() && currentTime - matchTimestamps.peekFirst() > intervalMillis) {
+            matchTimestamps.pollFirst();
+        }
+
+        // Notify if repetition count is reached within the interval
+        if (matchTimestamps.size() >= repetition) {
+            react(createNotification(context.getMessage(), trace));
+            matchTimestamps.clear();
+        }
+        markDirty();
+    }
+
+    /**
+     * Missing messages are detected by the timer of the absence window, messages only cancel it.
+     */
+    private void evaluateAbsence(MessageContext context) {
+        if (!context.hasMessage()) {
+            return;
+        }
+        Long receivedAt = context.getMessage().receivedAt();
+        if (receivedAt != null && absenceDetector.awaits(receivedAt) && matches(context)) {
+            absenceDetector.markReceived();
+        }
+    }
+
+    private Notification createNotification(MessageView message, TraceContext trace) {
+        Notification notification = new Notification();
+        notification.setRuleId(this.ruleId);
+        notification.setMessage(this.alarmMessage);
+        notification.setAlarmClassId(this.alarmClassId);
+        notification.setAlarmTypeId(this.alarmTypeId);
+        if (message != null) {
+            notification.setSubject(message.peek(MessageView.SUBJECT));
+            notification.setSender(message.peek(MessageView.SENDER));
+            notification.setBody(message.peek(MessageView.BODY));
+            notification.setReceivedAt(message.receivedAt());
+        }
+        notification.applyTrace(trace);
+        return notification;
+    }
+
+    private void react(Notification notification) {
+        metrics.recordRuleMatch(this.name);
+
+        reactionPipeline.submit(notification, reactions);
+    }
+}
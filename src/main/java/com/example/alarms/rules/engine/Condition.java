@@ -0,0 +1,20 @@
+package com.example.alarms.rules.engine;
+
+/**
+ * Compiled condition on a single message field.
+ * Conditions with the same key are shared by all rules of an action and evaluated once per message.
+ */
+public interface Condition {
+
+    /**
+     * Identity of the condition, equal for conditions that always give the same result.
+     */
+    String getKey();
+
+    /**
+     * Message field the condition reads.
+     */
+    String getField();
+
+    boolean test(MessageContext context);
+}
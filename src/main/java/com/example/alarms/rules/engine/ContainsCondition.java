@@ -0,0 +1,33 @@
+package com.example.alarms.rules.engine;
+
+import lombok.Getter;
+
+import java.util.Locale;
+
+/**
+ * Field contains the pattern, optionally ignoring case.
+ */
+@Getter
+class ContainsCondition implements Condition {
+
+    static final String OPERATOR = "contains";
+
+    private final String field;
+    private final String pattern;
+    private final boolean caseSensitive;
+    private final String key;
+
+    ContainsCondition(String field, String pattern, boolean caseSensitive) {
+        this.field = field;
+        this.caseSensitive = caseSensitive;
+        this.pattern = caseSensitive ? pattern : pattern.toLowerCase(Locale.ROOT);
+        this.key = field + ":" + OPERATOR + ":" + (caseSensitive ? "cs" : "ci") + ":" + this.pattern;
+    }
+
+    @Override
+    public boolean test(MessageContext context) {
+        MessageView message = context.getMessage();
+        String value = caseSensitive ? message.field(field) : message.fieldLowerCase(field);
+        return value != null && value.contains(pattern);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.alarms.rules.engine;
+
+/**
+ * Input of a regex match that aborts it once the deadline has passed.
+ * The clock is only read every few thousand characters, so the overhead on normal matches is negligible.
+ */
+final class DeadlineCharSequence implements CharSequence {
+
+    private static final int CHECK_MASK = (1 << 12) - 1;
+
+    private final CharSequence delegate;
+    private final long deadlineNanos;
+    private int reads;
+
+    DeadlineCharSequence(CharSequence delegate, long deadlineNanos) {
+        this.delegate = delegate;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if ((++reads & CHECK_MASK) == 0 && System.nanoTime() - deadlineNanos > 0) {
+            throw new MatchBudgetExceededException();
+        }
+        return delegate.charAt(index);
+    }
+
+    @Override
+    public int length() {
+        return delegate.length();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new DeadlineCharSequence(delegate.subSequence(start, end), deadlineNanos);
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.alarms.rules.engine;
+
+import microsoft.exchange.webservices.data.core.exception.service.local.ServiceLocalException;
+import microsoft.exchange.webservices.data.core.service.item.EmailMessage;
+
+/**
+ * View over an EWS message. The message is bound with its first class properties,
+ * so all fields are already in memory.
+ */
+class EwsMessageView extends CachedMessageView {
+
+    private final EmailMessage email;
+
+    EwsMessageView(EmailMessage email) {
+        this.email = email;
+    }
+
+    @Override
+    protected String load(String name) throws ServiceLocalException {
+        return switch (name) {
+            case BODY -> email.getBody() != null ? email.getBody().toString() : null;
+            case SUBJECT -> email.getSubject();
+            case SENDER -> email.getSender() != null ? email.getSender().toString() : null;
+            default -> null;
+        };
+    }
+
+    @Override
+    public Long receivedAt() {
+        try {
+            return email.getDateTimeReceived() != null ? email.getDateTimeReceived().getTime() : null;
+        } catch (ServiceLocalException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.alarms.rules.engine;
+
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+
+import java.util.Arrays;
+
+/**
+ * View over an IMAP message. The body is only downloaded when a condition reads it,
+ * and then at most maxBodyBytes of its text parts.
+ */
+class ImapMessageView extends CachedMessageView {
+
+    private final Message message;
+    private final int maxBodyBytes;
+
+    ImapMessageView(Message message, int maxBodyBytes) {
+        this.message = message;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    @Override
+    protected String load(String name) throws Exception {
+        return switch (name) {
+            case BODY -> MessageTextExtractor.extract(message, maxBodyBytes);
+            case SUBJECT -> message.getSubject();
+            case SENDER -> message.getFrom() != null ? Arrays.toString(message.getFrom()) : null;
+            default -> null;
+        };
+    }
+
+    @Override
+    public String peek(String name) {
+        return BODY.equals(name) ? cached(name) : field(name);
+    }
+
+    @Override
+    public Long receivedAt() {
+        try {
+            return message.getReceivedDate() != null ? message.getReceivedDate().getTime() : null;
+        } catch (MessagingException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.alarms.rules.engine;
+
+/**
+ * Thrown from within a regex match when the time budget of the message is used up.
+ */
+class MatchBudgetExceededException extends RuntimeException {
+
+    MatchBudgetExceededException() {
+        super("Regex time budget exceeded", null, false, false);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.alarms.rules.engine;
+
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Evaluation state of a single message: the message view and the results of the conditions
+ * evaluated so far, shared by all rules of the action.
+ */
+public class MessageContext {
+
+    @Getter
+    private final MessageView message;
+    private final Map<String, Boolean> results = new HashMap<>();
+    private final long regexBudgetNanos;
+    private long regexDeadline;
+    private boolean regexDeadlineSet;
+
+    public MessageContext(MessageView message, long regexBudgetNanos) {
+        this.message = message;
+        this.regexBudgetNanos = regexBudgetNanos;
+    }
+
+    /**
+     * Deadline shared by all regex conditions of the message, starts with the first regex match.
+     */
+    long regexDeadline() {
+        if (!regexDeadlineSet) {
+            regexDeadline = System.nanoTime() + regexBudgetNanos;
+            regexDeadlineSet = true;
+        }
+        return regexDeadline;
+    }
+
+    /**
+     * @return false for ticks that didn't produce a message
+     */
+    public boolean hasMessage() {
+        return message != null;
+    }
+
+    public boolean test(Condition condition) {
+        if (message == null) {
+            return false;
+        }
+        return results.computeIfAbsent(condition.getKey(), __ -> condition.test(this));
+    }
+}
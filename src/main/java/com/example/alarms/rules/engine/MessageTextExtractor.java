@@ -0,0 +1,65 @@
+package com.example.alarms.rules.engine;
+
+import jakarta.mail.BodyPart;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Multipart;
+import jakarta.mail.Part;
+import jakarta.mail.internet.ContentType;
+import jakarta.mail.internet.ParseException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the textual content of a message for pattern matching.
+ * Only text/* parts are read and reading stops after maxBytes, so with IMAP
+ * partial fetch enabled attachments and the tail of large bodies never get downloaded.
+ */
+class MessageTextExtractor {
+
+    private MessageTextExtractor() {
+    }
+
+    static String extract(Part part, int maxBytes) throws MessagingException, IOException {
+        StringBuilder text = new StringBuilder();
+        appendText(part, text, new int[]{maxBytes});
+        return text.toString();
+    }
+
+    private static void appendText(Part part, StringBuilder text, int[] budget) throws MessagingException, IOException {
+        if (budget[0] <= 0 || Part.ATTACHMENT.equalsIgnoreCase(part.getDisposition())) {
+            return;
+        }
+
+        if (part.isMimeType("multipart/*")) {
+            // For IMAP messages the structure comes from BODYSTRUCTURE, parts are fetched on demand
+            Multipart multipart = (Multipart) part.getContent();
+            for (int i = 0; i < multipart.getCount() && budget[0] > 0; i++) {
+                BodyPart bodyPart = multipart.getBodyPart(i);
+                appendText(bodyPart, text, budget);
+            }
+            return;
+        }
+
+        if (!part.isMimeType("text/*")) {
+            return;
+        }
+
+        try (InputStream in = part.getInputStream()) {
+            byte[] bytes = in.readNBytes(budget[0]);
+            budget[0] -= bytes.length;
+            text.append(new String(bytes, charsetOf(part)));
+        }
+    }
+
+    private static Charset charsetOf(Part part) throws MessagingException {
+        try {
+            String charset = new ContentType(part.getContentType()).getParameter("charset");
+            return charset != null && Charset.isSupported(charset) ? Charset.forName(charset) : StandardCharsets.UTF_8;
+        } catch (ParseException e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+}
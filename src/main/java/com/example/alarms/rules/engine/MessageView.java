@@ -0,0 +1,48 @@
+package com.example.alarms.rules.engine;
+
+import jakarta.mail.Message;
+import microsoft.exchange.webservices.data.core.service.item.EmailMessage;
+
+/**
+ * Read only view over a polled message. Field values are loaded on first access and cached,
+ * so every condition and rule of an action reads the same extracted text.
+ */
+public interface MessageView {
+
+    String BODY = "body";
+    String SUBJECT = "subject";
+    String SENDER = "sender";
+
+    /**
+     * @return value of the field (body, subject, sender), null when it is unknown or can't be read
+     */
+    String field(String name);
+
+    /**
+     * Lower cased value of the field, cached like the value itself.
+     */
+    String fieldLowerCase(String name);
+
+    /**
+     * Value of the field only if it doesn't require another fetch from the mailbox, null otherwise.
+     */
+    default String peek(String name) {
+        return field(name);
+    }
+
+    /**
+     * @return time the message was received in epoch millis, null if unknown
+     */
+    Long receivedAt();
+
+    /**
+     * @return view over the data emitted by an action, null when the data isn't a message
+     */
+    static MessageView of(Object data, int maxBodyBytes) {
+        return switch (data) {
+            case EmailMessage email -> new EwsMessageView(email);
+            case Message message -> new ImapMessageView(message, maxBodyBytes);
+            case null, default -> null;
+        };
+    }
+}
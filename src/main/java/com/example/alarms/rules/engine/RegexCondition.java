@@ -0,0 +1,42 @@
+package com.example.alarms.rules.engine;
+
+import com.google.re2j.Pattern;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Field matches a regular expression somewhere.
+ * Uses RE2/J, which runs in time linear to the input and has no backtracking,
+ * so a hostile message body can't stall the rule evaluation. Matches additionally stop
+ * when the regex time budget of the message is used up.
+ */
+@Slf4j
+@Getter
+class RegexCondition implements Condition {
+
+    static final String OPERATOR = "regex";
+
+    private final String field;
+    private final Pattern pattern;
+    private final String key;
+
+    RegexCondition(String field, String regex, boolean caseSensitive) {
+        this.field = field;
+        this.pattern = Pattern.compile(regex, caseSensitive ? 0 : Pattern.CASE_INSENSITIVE);
+        this.key = field + ":" + OPERATOR + ":" + (caseSensitive ? "cs" : "ci") + ":" + regex;
+    }
+
+    @Override
+    public boolean test(MessageContext context) {
+        String value = context.getMessage().field(field);
+        if (value == null) {
+            return false;
+        }
+        try {
+            return pattern.matcher(new DeadlineCharSequence(value, context.regexDeadline())).find();
+        } catch (MatchBudgetExceededException e) {
+            log.warn("Regex time budget exceeded matching {} on {} ({} chars)", pattern.pattern(), field, value.length());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.alarms.rules.engine;
+
+import com.example.alarms.components.ReactionPipeline;
+import com.example.alarms.entities.RuleEntity;
+import com.example.alarms.exceptions.RuleProcessingException;
+import com.example.alarms.metrics.PipelineMetrics;
+import com.example.alarms.reactions.Reaction;
+import com.example.alarms.rules.DetectMissingEmail.DetectMissingEmailDefinition;
+import com.example.alarms.rules.FindPatternInEws.FindPatternInEwsDefinition;
+import com.example.alarms.rules.FindPatternInGmail.FindPatternInGmailDefinition;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Compiles rule definitions of an action into a {@link RuleSet}.
+ * The legacy rule names are mapped onto a {@link RuleDefinition}, so they share the same evaluation code.
+ */
+@Slf4j
+@Component
+public class RuleCompiler {
+
+    public static final String DECLARATIVE = "Declarative";
+
+    private static final int DEFAULT_MAX_BODY_BYTES = 65536;
+    private static final Set<String> FIELDS = Set.of(MessageView.BODY, MessageView.SUBJECT, MessageView.SENDER);
+
+    private final RuleServices services;
+    private final ObjectMapper objectMapper;
+    private final long regexBudgetNanos;
+
+    public RuleCompiler(ReactionPipeline reactionPipeline, PipelineMetrics metrics, RuleStateStore ruleStateStore,
+                        Environment env) {
+        this.objectMapper = new ObjectMapper();
+        // rule timers only hand work over to the reaction pipeline, the shared parallel scheduler is enough
+        this.services = new RuleServices(reactionPipeline, metrics, ruleStateStore, Schedulers.parallel());
+        this.regexBudgetNanos = Duration.ofMillis(Long.parseLong(env.getProperty("REGEX_TIME_BUDGET_MILLIS", "50"))).toNanos();
+    }
+
+    /**
+     * Compiles the rules of an action. Equal conditions of different rules are compiled into one instance
+     * so they are evaluated once per message.
+     */
+    public RuleSet compile(List<RuleEntity> ruleEntities, Long alarmTypeId, Long alarmClassId,
+                           Function<RuleEntity, List<Reaction>> reactionFactory) {
+        Map<String, Condition> plan = new HashMap<>();
+        int maxBodyBytes = 0;
+        List<CompiledRule> rules = new ArrayList<>();
+
+        for (RuleEntity ruleEntity : ruleEntities) {
+            RuleDefinition definition = toRuleDefinition(ruleEntity.getName(), ruleEntity.getDefinition());
+            List<Condition> conditions = compileConditions(ruleEntity.getName(), definition, plan);
+            maxBodyBytes = Math.max(maxBodyBytes,
+                    definition.getMaxBodyBytes() != null ? definition.getMaxBodyBytes() : DEFAULT_MAX_BODY_BYTES);
+
+            rules.add(new CompiledRule(ruleEntity.getId(), ruleEntity.getName(), definition, conditions,
+                    reactionFactory.apply(ruleEntity), alarmTypeId, alarmClassId, services));
+        }
+
+        log.debug("Compiled {} rules with {} distinct conditions", rules.size(), plan.size());
+        return new RuleSet(rules, plan.size(), maxBodyBytes > 0 ? maxBodyBytes : DEFAULT_MAX_BODY_BYTES, regexBudgetNanos,
+                services.ruleStateStore());
+    }
+
+    private List<Condition> compileConditions(String name, RuleDefinition definition, Map<String, Condition> plan) {
+        try {
+            // patterns, regexes included, are compiled once per action, not per message
+            return definition.getConditions().stream()
+                    .map(this::compileCondition)
+                    .map(condition -> plan.computeIfAbsent(condition.getKey(), __ -> condition))
+                    .toList();
+        } catch (Exception e) {
+            throw new RuleProcessingException("Failed to compile rule " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parses the stored definition of a rule and maps it onto the engine definition.
+     */
+    public RuleDefinition toRuleDefinition(String name, String definitionJson) {
+        try {
+            RuleDefinition definition = switch (name) {
+                case DECLARATIVE -> objectMapper.readValue(definitionJson, RuleDefinition.class);
+                case "FindPatternInEws" -> objectMapper.readValue(definitionJson, FindPatternInEwsDefinition.class).toRuleDefinition();
+                case "FindPatternInGmail" -> objectMapper.readValue(definitionJson, FindPatternInGmailDefinition.class).toRuleDefinition();
+                case "DetectMissingEmail" -> objectMapper.readValue(definitionJson, DetectMissingEmailDefinition.class).toRuleDefinition();
+                default -> throw new IllegalArgumentException("Unknown rule " + name);
+            };
+            validate(definition);
+            return definition;
+        } catch (Exception e) {
+            throw new RuleProcessingException("Failed to compile rule " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void validate(RuleDefinition definition) {
+        if (definition.getConditions() == null || (definition.getConditions().isEmpty() && definition.getAbsence() == null)) {
+            throw new IllegalArgumentException("conditions are required");
+        }
+        if (definition.getAbsence() != null) {
+            if (definition.getAbsence().getPointInTime() == null) {
+                throw new IllegalArgumentException("absence requires point_in_time");
+            }
+            LocalTime.parse(definition.getAbsence().getPointInTime());
+        }
+        if (definition.getTimeWindow() != null) {
+            TimeWindow.of(definition.getTimeWindow().getStartTime(), definition.getTimeWindow().getEndTime());
+        }
+    }
+
+    private Condition compileCondition(RuleDefinition.ConditionDefinition definition) {
+        if (definition.getField() == null || !FIELDS.contains(definition.getField())) {
+            throw new IllegalArgumentException("field must be one of: " + String.join(", ", FIELDS));
+        }
+        if (definition.getPattern() == null) {
+            throw new IllegalArgumentException("pattern is required");
+        }
+        String operator = definition.getOperator() != null ? definition.getOperator() : ContainsCondition.OPERATOR;
+        return switch (operator) {
+            case ContainsCondition.OPERATOR ->
+                    new ContainsCondition(definition.getField(), definition.getPattern(), definition.isCaseSensitive());
+            case RegexCondition.OPERATOR ->
+                    new RegexCondition(definition.getField(), definition.getPattern(), definition.isCaseSensitive());
+            default -> throw new IllegalArgumentException("Unsupported operator " + operator);
+        };
+    }
+}
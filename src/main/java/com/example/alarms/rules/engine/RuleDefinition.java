@@ -0,0 +1,124 @@
+package com.example.alarms.rules.engine;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Declarative rule definition compiled by the {@link RuleCompiler}.
+ * The legacy rule definitions (FindPatternInEws, FindPatternInGmail, DetectMissingEmail) are translated into this form.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+@Schema(description = "Definition for Declarative rule")
+public class RuleDefinition {
+
+    public static final String MATCH_ALL = "all";
+    public static final String MATCH_ANY = "any";
+
+    @JsonProperty("conditions")
+    @Schema(description = "Conditions on message fields", required = true)
+    private List<ConditionDefinition> conditions = new ArrayList<>();
+
+    @JsonProperty("match")
+    @Schema(description = "Whether all or any of the conditions have to match", example = "all", allowableValues = {"all", "any"})
+    private String match = MATCH_ALL;
+
+    @JsonProperty("time_window")
+    @Schema(description = "Time of day when matching messages count")
+    private TimeWindowDefinition timeWindow;
+
+    @JsonProperty("count")
+    @Schema(description = "Number of matches within a sliding window needed to trigger")
+    private CountDefinition count;
+
+    @JsonProperty("absence")
+    @Schema(description = "Trigger when no matching message arrives around a point in time")
+    private AbsenceDefinition absence;
+
+    @JsonProperty("max_body_bytes")
+    @Schema(description = "Maximum number of body bytes read for matching", example = "65536", minimum = "1")
+    private Integer maxBodyBytes;
+
+    @JsonProperty("alarm_message")
+    @Schema(description = "Message to display when the rule triggers", example = "pattern found", required = true)
+    private String alarmMessage;
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @Schema(description = "Condition on a message field")
+    public static class ConditionDefinition {
+
+        @JsonProperty("field")
+        @Schema(description = "Message field to test", example = "subject", allowableValues = {"body", "subject", "sender"}, required = true)
+        private String field;
+
+        @JsonProperty("operator")
+        @Schema(description = "How the pattern is matched, regex uses RE2 syntax", example = "contains", allowableValues = {"contains", "regex"})
+        private String operator = "contains";
+
+        @JsonProperty("pattern")
+        @Schema(description = "Pattern to look for", example = "find me this", required = true)
+        private String pattern;
+
+        @JsonProperty("case_sensitive")
+        @Schema(description = "Whether matching is case sensitive", example = "false")
+        private boolean caseSensitive = false;
+
+        public ConditionDefinition() {
+        }
+
+        public ConditionDefinition(String field, String operator, String pattern, boolean caseSensitive) {
+            this.field = field;
+            this.operator = operator;
+            this.pattern = pattern;
+            this.caseSensitive = caseSensitive;
+        }
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @Schema(description = "Time of day window, wraps around midnight when end is before start")
+    public static class TimeWindowDefinition {
+
+        @JsonProperty("start_time")
+        @Schema(description = "Start of the window", example = "13:00")
+        private String startTime;
+
+        @JsonProperty("end_time")
+        @Schema(description = "End of the window", example = "15:00")
+        private String endTime;
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @Schema(description = "Count over a sliding window")
+    public static class CountDefinition {
+
+        @JsonProperty("repetition")
+        @Schema(description = "Number of matches needed", example = "3", minimum = "1")
+        private Integer repetition = 1;
+
+        @JsonProperty("interval")
+        @Schema(description = "Sliding window in seconds", example = "60", minimum = "1")
+        private Integer interval;
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @Schema(description = "Absence detection around a daily point in time")
+    public static class AbsenceDefinition {
+
+        @JsonProperty("point_in_time")
+        @Schema(description = "Expected arrival time", example = "15:00", required = true)
+        private String pointInTime;
+
+        @JsonProperty("tolerance")
+        @Schema(description = "Plus/minus around point_in_time in seconds", example = "300")
+        private Integer tolerance = 0;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.alarms.rules.engine;
+
+import com.example.alarms.components.ReactionPipeline;
+import com.example.alarms.metrics.PipelineMetrics;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Shared collaborators of the compiled rules.
+ */
+record RuleServices(ReactionPipeline reactionPipeline,
+                    PipelineMetrics metrics,
+                    RuleStateStore ruleStateStore,
+                    Scheduler timerScheduler) {
+}
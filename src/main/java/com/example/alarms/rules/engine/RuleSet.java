@@ -0,0 +1,59 @@
+package com.example.alarms.rules.engine;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Compiled rules of one action together with their shared condition plan.
+ */
+@Getter
+public class RuleSet {
+
+    private final List<CompiledRule> rules;
+    private final int distinctConditions;
+    private final int maxBodyBytes;
+    private final long regexBudgetNanos;
+    private final Set<String> requiredFields;
+    @Getter(AccessLevel.NONE)
+    private final RuleStateStore ruleStateStore;
+
+    RuleSet(List<CompiledRule> rules, int distinctConditions, int maxBodyBytes, long regexBudgetNanos,
+            RuleStateStore ruleStateStore) {
+        this.ruleStateStore = ruleStateStore;
+        this.rules = rules;
+        this.distinctConditions = distinctConditions;
+        this.maxBodyBytes = maxBodyBytes;
+        this.regexBudgetNanos = regexBudgetNanos;
+        this.requiredFields = rules.stream()
+                .flatMap(rule -> rule.getRequiredFields().stream())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * Restores the rule state checkpointed by the previous owner of the job and arms rule timers.
+     */
+    public Mono<Void> start() {
+        return ruleStateStore.restore(rules)
+                .then(Mono.fromRunnable(() -> rules.forEach(CompiledRule::start)));
+    }
+
+    /**
+     * Cancels rule timers and checkpoints the rule state, so the next owner of the job continues from it.
+     */
+    public Mono<Void> stop() {
+        rules.forEach(CompiledRule::stop);
+        return ruleStateStore.checkpoint(rules);
+    }
+
+    /**
+     * Creates the evaluation context of a message emitted by the action, shared by all rules.
+     */
+    public MessageContext prepare(Object data) {
+        return new MessageContext(MessageView.of(data, maxBodyBytes), regexBudgetNanos);
+    }
+}
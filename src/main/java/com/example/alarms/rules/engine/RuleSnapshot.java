@@ -0,0 +1,24 @@
+package com.example.alarms.rules.engine;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Persisted runtime state of a compiled rule. Timestamps are epoch millis, so a snapshot
+ * taken on one node is valid on another.
+ *
+ * @param version          format version, snapshots with another version are ignored
+ * @param matchTimestamps  matches counted in the current count window
+ * @param absence          state of the absence window, null for rules without one
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+record RuleSnapshot(@JsonProperty("v") int version,
+                    @JsonProperty("match_timestamps") List<Long> matchTimestamps,
+                    @JsonProperty("absence") AbsenceDetector.WindowState absence) {
+
+    static final int VERSION = 1;
+}
@@ -0,0 +1,135 @@
+package com.example.alarms.rules.engine;
+
+import com.example.alarms.entities.RuleStateEntity;
+import com.example.alarms.services.RuleStateService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Checkpoints rule state snapshots to the rule_state table.
+ * <p>
+ * Rules only mark themselves dirty when their state changes. Every RULE_STATE_CHECKPOINT_SECONDS
+ * the snapshots of all dirty rules of the node are written in one batch, and a job being released
+ * writes its rules right away so the next owner continues from the same state. Rules of a stopped job
+ * are not marked dirty anymore, after that checkpoint the state belongs to the next owner.
+ */
+@Slf4j
+@Component
+public class RuleStateStore {
+
+    private final RuleStateService ruleStateService;
+    private final ObjectMapper objectMapper;
+    private final Duration checkpointInterval;
+
+    private final Map<Long, CompiledRule> dirty = new ConcurrentHashMap<>();
+    private Disposable checkpoints;
+
+    public RuleStateStore(RuleStateService ruleStateService, Environment env) {
+        this.ruleStateService = ruleStateService;
+        this.objectMapper = new ObjectMapper();
+        this.checkpointInterval = Duration.ofSeconds(Long.parseLong(env.getProperty("RULE_STATE_CHECKPOINT_SECONDS", "10")));
+    }
+
+    @PostConstruct
+    public void start() {
+        checkpoints = Flux.interval(checkpointInterval, checkpointInterval)
+                .onBackpressureDrop()
+                .concatMap(__ -> checkpoint(List.copyOf(dirty.values())), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (checkpoints != null) {
+            checkpoints.dispose();
+        }
+        checkpoint(List.copyOf(dirty.values())).block(Duration.ofSeconds(10));
+    }
+
+    void markDirty(CompiledRule rule) {
+        dirty.put(rule.getRuleId(), rule);
+        // the job of a stopped rule may already run on another node, its state is written by the stop
+        // checkpoint only, a late change must not overwrite what the new owner checkpoints
+        if (rule.isStopped()) {
+            dirty.remove(rule.getRuleId(), rule);
+        }
+    }
+
+    /**
+     * Restores the last checkpoint of the rules with a single query.
+     */
+    Mono<Void> restore(List<CompiledRule> rules) {
+        Map<Long, CompiledRule> byId = rules.stream()
+                .collect(Collectors.toMap(CompiledRule::getRuleId, Function.identity()));
+        return ruleStateService.findByRuleIds(byId.keySet())
+                .doOnNext(entity -> restore(byId.get(entity.getRuleId()), entity))
+                .onErrorResume(e -> {
+                    log.warn("Failed to restore rule state: {}", e.getMessage());
+                    return Flux.empty();
+                })
+                .then();
+    }
+
+    private void restore(CompiledRule rule, RuleStateEntity entity) {
+        try {
+            RuleSnapshot snapshot = objectMapper.readValue(entity.getState(), RuleSnapshot.class);
+            if (snapshot.version() != RuleSnapshot.VERSION) {
+                log.warn("Ignoring state of rule {} with unsupported version {}", rule.getRuleId(), snapshot.version());
+                return;
+            }
+            rule.restore(snapshot);
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable state of rule {}: {}", rule.getRuleId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the snapshots of the given rules that changed since the last checkpoint.
+     */
+    Mono<Void> checkpoint(Collection<CompiledRule> rules) {
+        return Mono.defer(() -> {
+            Map<Long, CompiledRule> batch = new LinkedHashMap<>();
+            Map<Long, String> states = new LinkedHashMap<>();
+            for (CompiledRule rule : rules) {
+                // removed before the snapshot is taken, a change made meanwhile marks the rule again
+                if (dirty.remove(rule.getRuleId(), rule)) {
+                    try {
+                        states.put(rule.getRuleId(), objectMapper.writeValueAsString(rule.snapshot()));
+                        batch.put(rule.getRuleId(), rule);
+                    } catch (Exception e) {
+                        log.warn("Failed to serialize state of rule {}: {}", rule.getRuleId(), e.getMessage());
+                    }
+                }
+            }
+            if (states.isEmpty()) {
+                return Mono.empty();
+            }
+            return ruleStateService.saveAll(states)
+                    .doOnNext(rows -> log.debug("Checkpointed state of {} rules", rows))
+                    .onErrorResume(e -> {
+                        log.warn("Failed to checkpoint state of {} rules: {}", states.size(), e.getMessage());
+                        batch.values().stream()
+                                .filter(rule -> !rule.isStopped())
+                                .forEach(rule -> dirty.putIfAbsent(rule.getRuleId(), rule));
+                        return Mono.empty();
+                    })
+                    .then();
+        });
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.alarms.rules.engine;
+
+import java.time.LocalTime;
+
+/**
+ * Time of day window, wraps around midnight when end is before start.
+ */
+record TimeWindow(LocalTime start, LocalTime end) {
+
+    static TimeWindow of(String start, String end) {
+        if (isBlank(start) && isBlank(end)) {
+            return null;
+        }
+        return new TimeWindow(
+                isBlank(start) ? LocalTime.MIDNIGHT : LocalTime.parse(start),
+                isBlank(end) ? LocalTime.MIDNIGHT : LocalTime.parse(end));
+    }
+
+    boolean contains(LocalTime time) {
+        if (end.isBefore(start)) {
+            return !time.isBefore(start) || !time.isAfter(end);
+        }
+        return !time.isBefore(start) && !time.isAfter(end);
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.trim().isEmpty();
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.alarms.services;
 
+import com.example.alarms.components.AuthenticationCache;
 import com.example.alarms.dto.Account;
 import com.example.alarms.dto.AccountMapper;
 import com.example.alarms.entities.AccountEntity;
@@ -17,6 +18,7 @@ public class AccountService {
     private final AccountRepository accountRepository;
     private  final AccountMapper accountMapper;
     private final PasswordEncoder passwordEncoder;
+    private final AuthenticationCache authenticationCache;
 
     public Mono<Account> createAccount(Account account) {
         AccountEntity accountEntity = accountMapper.toEntity(account);
@@ -44,14 +46,19 @@ public class AccountService {
     public Mono<Account> updateAccount(String id, Account updatedDTO) {
         return accountRepository.findById(id)
                 .flatMap(existingAccount -> {
+                    // cached logins with the old username or password must stop working
+                    authenticationCache.invalidate(existingAccount.getUsername());
                     existingAccount.setUsername(updatedDTO.getUsername());
                     existingAccount.setPassword("{bcrypt}" + passwordEncoder.encode(updatedDTO.getPassword()));
                     return accountRepository.save(existingAccount);
                 })
+                .doOnNext(saved -> authenticationCache.invalidate(saved.getUsername()))
                 .map(accountMapper::toDTO);
     }
 
     public Mono<Void> deleteAccount(String id) {
-        return accountRepository.deleteById(id);
+        return accountRepository.findById(id)
+                .flatMap(existingAccount -> accountRepository.deleteById(id)
+                        .doOnSuccess(__ -> authenticationCache.invalidate(existingAccount.getUsername())));
     }
 }
@@ -0,0 +1,132 @@
+package com.example.alarms.services;
+
+import com.example.alarms.entities.ActionEntity;
+import com.example.alarms.entities.ReactionEntity;
+import com.example.alarms.entities.RuleEntity;
+import com.example.alarms.repositories.ActionRepository;
+import com.example.alarms.services.utils.SqlBatches;
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads actions together with their rules and reactions.
+ * <p>
+ * The actions are read with one query, their rules and reactions with a second one joining both tables
+ * for all action ids at once, and the graphs are assembled in memory. Replaces the per action and per
+ * rule lookups, a page of actions costs two queries regardless of its size.
+ */
+@Service
+@RequiredArgsConstructor
+public class ActionAggregateLoader {
+
+    private static final String RULES_WITH_REACTIONS = """
+        SELECT r.id AS rule_id, r.action_id, r.name AS rule_name, r.definition,
+               r.created_date AS rule_created_date, r.last_modified_date AS rule_last_modified_date,
+               x.id AS reaction_id, x.name AS reaction_name, x.params,
+               x.created_date AS reaction_created_date, x.last_modified_date AS reaction_last_modified_date
+        FROM rules r
+        LEFT JOIN reactions x ON x.rule_id = r.id
+        WHERE r.action_id IN (:actionIds)
+        ORDER BY r.action_id, r.id, x.id
+    """;
+
+    private final ActionRepository actionRepository;
+    private final DatabaseClient databaseClient;
+
+    public Mono<ActionEntity> load(Long actionId) {
+        return actionRepository.findById(actionId)
+                .flatMap(action -> attachRules(List.of(action)).thenReturn(action));
+    }
+
+    public Flux<ActionEntity> load(Pageable pageable) {
+        return actionRepository.findAllBy(pageable)
+                .collectList()
+                .flatMapMany(actions -> attachRules(actions).thenMany(Flux.fromIterable(actions)));
+    }
+
+    /**
+     * Sets the rules, with their reactions, on each of the actions.
+     */
+    public Mono<Void> attachRules(List<ActionEntity> actions) {
+        if (actions.isEmpty()) {
+            return Mono.empty();
+        }
+        List<Long> actionIds = actions.stream().map(ActionEntity::getId).toList();
+        return findRulesByActionIds(actionIds)
+                .doOnNext(rulesByAction -> actions.forEach(action ->
+                        action.setRules(rulesByAction.getOrDefault(action.getId(), new ArrayList<>()))))
+                .then();
+    }
+
+    /**
+     * @return rules with their reactions, grouped by action id in rule id order
+     */
+    public Mono<Map<Long, List<RuleEntity>>> findRulesByActionIds(Collection<Long> actionIds) {
+        List<List<Long>> chunks = SqlBatches.chunks(List.copyOf(actionIds), SqlBatches.rowsPerStatement(1));
+
+        return Mono.defer(() -> {
+            Map<Long, RuleEntity> rulesById = new LinkedHashMap<>();
+            return Flux.fromIterable(chunks)
+                    .concatMap(chunk -> databaseClient.sql(RULES_WITH_REACTIONS)
+                            .bind("actionIds", chunk)
+                            .map(ActionAggregateLoader::toRow)
+                            .all()
+                            .doOnNext(row -> merge(rulesById, row)))
+                    .then(Mono.fromSupplier(() -> {
+                        Map<Long, List<RuleEntity>> rulesByAction = new HashMap<>();
+                        for (RuleEntity rule : rulesById.values()) {
+                            rulesByAction.computeIfAbsent(rule.getActionId(), __ -> new ArrayList<>()).add(rule);
+                        }
+                        return rulesByAction;
+                    }));
+        });
+    }
+
+    // rows are only valid inside the mapping function, copy them before assembling
+    private record RuleRow(RuleEntity rule, ReactionEntity reaction) {
+    }
+
+    private static RuleRow toRow(Readable row) {
+        RuleEntity rule = new RuleEntity(
+                row.get("rule_id", Long.class),
+                row.get("rule_name", String.class),
+                row.get("definition", String.class),
+                row.get("action_id", Long.class),
+                new ArrayList<>(),
+                row.get("rule_created_date", LocalDateTime.class),
+                row.get("rule_last_modified_date", LocalDateTime.class));
+
+        Long reactionId = row.get("reaction_id", Long.class);
+        ReactionEntity reaction = reactionId != null
+                ? new ReactionEntity(
+                        reactionId,
+                        row.get("reaction_name", String.class),
+                        row.get("params", String.class),
+                        rule.getId(),
+                        row.get("reaction_created_date", LocalDateTime.class),
+                        row.get("reaction_last_modified_date", LocalDateTime.class))
+                : null;
+        return new RuleRow(rule, reaction);
+    }
+
+    private static void merge(Map<Long, RuleEntity> rulesById, RuleRow row) {
+        // the rule repeats on every row of its reactions, the first copy is kept
+        RuleEntity rule = rulesById.computeIfAbsent(row.rule().getId(), __ -> row.rule());
+        if (row.reaction() != null) {
+            rule.getReactions().add(row.reaction());
+        }
+    }
+}
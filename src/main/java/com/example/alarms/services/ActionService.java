@@ -2,7 +2,6 @@ package com.example.alarms.services;
 
 import com.example.alarms.dto.*;
 import com.example.alarms.entities.ActionEntity;
-import com.example.alarms.entities.RuleEntity;
 import com.example.alarms.exceptions.*;
 import com.example.alarms.repositories.ActionRepository;
 import com.example.alarms.services.utils.ActionValidator;
@@ -15,6 +14,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -28,6 +28,8 @@ public class ActionService {
 
     private final ActionRepository actionRepository;
     private final RuleService ruleService;
+    private final ActionAggregateLoader actionAggregateLoader;
+    private final TransactionalOperator transactionalOperator;
 
     public Mono<ActionEntity> create(ActionRequest action, Long userId) {
         List<String> validationErrors = ActionValidator.validateCreateUpdateRequest(action);
@@ -52,14 +54,8 @@ public class ActionService {
                         null,
                         null,
                         null)))
-                .flatMap(savedAction ->
-                        Flux.fromIterable(action.getRules())
-                        .flatMap(rule -> saveRuleAndReactions(savedAction, rule))
-                        .collectList()
-                        .map(rules -> {
-                            savedAction.setRules(rules);
-                            return savedAction;
-                        }))
+                .flatMap(savedAction -> saveNewRules(savedAction, action).thenReturn(savedAction))
+                .as(transactionalOperator::transactional)
                 .onErrorMap(JsonProcessingException.class, e ->
                         new SerializationException("Error serializing action parameters", e))
                 .onErrorMap(e -> !(e instanceof InvalidActionException ||
@@ -97,6 +93,7 @@ public class ActionService {
                                 .switchIfEmpty(Mono.error(new EntityNotFoundException("Action not found with ID: " + id)))
                                 .flatMap(existingAction -> updateActionAndSave(existingAction, action, jsonParams))
                 )
+                .as(transactionalOperator::transactional)
                 .onErrorMap(JsonProcessingException.class, e ->
                         new SerializationException("Error serializing action parameters", e))
                 .onErrorMap(e -> !(e instanceof InvalidActionException ||
@@ -129,7 +126,7 @@ public class ActionService {
             return Mono.error(new InvalidActionException("Action or rules cannot be null"));
         }
 
-        // First, delete existing reactions associated with the rules
+        // First, delete existing rules with their reactions, in the same transaction as the new ones
         return ruleService.deleteByActionId(savedAction.getId())
                 .then(saveNewRules(savedAction, action))
                 .thenReturn(savedAction)
@@ -138,32 +135,12 @@ public class ActionService {
     }
 
     private Mono<Void> saveNewRules(ActionEntity savedAction, ActionRequest action) {
-        return Flux.fromIterable(action.getRules())
-                .flatMap(ruleDTO -> saveRuleAndReactions(savedAction, ruleDTO))
-                .collectList() // Collect into a List<RuleEntity>
+        return ruleService.createAll(action.getRules(), savedAction.getId())
                 .doOnNext(savedAction::setRules) // Set rules to ActionEntity
                 .then() // Return Mono<Void>
                 .onErrorResume(ex -> Mono.error(new RuleProcessingException("Failed to save rules", ex)));
     }
 
-    private Mono<RuleEntity> saveRuleAndReactions(ActionEntity savedAction, Rule rule) {
-        if (savedAction == null) {
-            return Mono.error(new InvalidActionException("Action cannot be null"));
-        }
-
-        if (rule == null) {
-            return Mono.error(new InvalidActionException("Rule cannot be null"));
-        }
-
-        return ruleService.create(rule, savedAction.getId())
-                .onErrorResume(ex -> {
-                    // Log error but continue with other rules
-                    log.error("Failed to save rule for action {}: {}",
-                            savedAction.getId(), ex.getMessage());
-                    return Mono.empty(); // Skip this rule but continue with others
-                });
-    }
-
 
     private Mono<ActionEntity> deleteRulesAndReactions(ActionEntity savedAction) {
         // First, delete existing reactions associated with the rules
@@ -180,8 +157,8 @@ public class ActionService {
      * @return Mono of ActionEntity
      */
     public Mono<ActionEntity> getActionById(Long id) {
-        return actionRepository.findById(id)
-                .flatMap(this::attachRulesToAction);
+        return actionAggregateLoader.load(id)
+                .onErrorResume(ex -> Mono.error(new RuntimeException("Failed to fetch rules", ex)));
     }
 
     /**
@@ -194,30 +171,13 @@ public class ActionService {
         return actionRepository.findById(id)
                 .flatMap(this::deleteRulesAndReactions)
                 .then(actionRepository.deleteById(id))
+                .as(transactionalOperator::transactional)
                 .onErrorResume(ex -> Mono.error(new RuntimeException("Failed to delete action", ex)));
 
     }
 
-    /**
-     * Attach rules to an ActionEntity based on actionId.
-     *
-     * @param action ActionEntity
-     * @return Mono of ActionEntity with rules
-     */
-    private Mono<ActionEntity> attachRulesToAction(ActionEntity action) {
-        if (action == null) {
-            return Mono.error(new IllegalArgumentException("Action cannot be null"));
-        }
-        return ruleService.getByActionId(action.getId())
-                .collectList()
-                .map(action::setRules)
-                .onErrorResume(ex -> Mono.error(new RuntimeException("Failed to fetch rules", ex)));
-
-    }
-
     public Flux<ActionEntity> getAll(Pageable pageable) {
-        return actionRepository.findAllBy(pageable)
-                .flatMap(this::attachRulesToAction)
+        return actionAggregateLoader.load(pageable)
                 .onErrorMap(e -> {
                     // Log the error
                     log.error("Error while fetching actions: {}", e.getMessage());
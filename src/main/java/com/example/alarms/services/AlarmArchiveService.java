@@ -0,0 +1,135 @@
+package com.example.alarms.services;
+
+import com.example.alarms.dto.AlarmMapper;
+import com.example.alarms.dto.AlarmResponse;
+import com.example.alarms.entities.AlarmEntity;
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Moves alarms to the alarms_archive table and reads them back from it.
+ */
+@Service
+@RequiredArgsConstructor
+public class AlarmArchiveService {
+
+    // alarms and alarms_archive share their columns, also used by AlarmSearchService
+    static final String COLUMNS = """
+        id, rule_id, message, alarm_type_id, alarm_class_id, status, archived, created_from, metadata, relation,
+        subject, sender, received_at, fingerprint, occurrence_count, last_seen_at, created_date, updated_at""";
+
+    private final DatabaseClient databaseClient;
+    private final AlarmMapper alarmMapper;
+    private final AlarmBodyService alarmBodyService;
+    private final TransactionalOperator transactionalOperator;
+
+    /**
+     * Moves up to batchSize archived alarms, and alarms created before the cutoff, in one atomic statement.
+     * Rows locked by online writes are skipped and picked up by a later batch.
+     *
+     * @return number of alarms moved
+     */
+    public Mono<Long> moveBatch(LocalDateTime cutoff, int batchSize) {
+        String sql = """
+            DELETE TOP (:batchSize) FROM alarms WITH (READPAST)
+            OUTPUT %s
+            INTO alarms_archive (%s)
+            WHERE archived = 1 OR (archived = 0 AND created_date < :cutoff)
+        """.formatted(deletedColumns(), COLUMNS);
+        return databaseClient.sql(sql)
+                .bind("batchSize", batchSize)
+                .bind("cutoff", cutoff)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Deletes up to batchSize archived alarms created before the cutoff, their counts stay in alarm_rollup.
+     * The ids deleted from alarms_archive are collected by OUTPUT and their bodies deleted by that set, in
+     * one transaction, so both tables always lose the same alarms.
+     *
+     * @return number of alarms deleted
+     */
+    public Mono<Long> purgeBatch(LocalDateTime cutoff, int batchSize) {
+        return databaseClient.sql("""
+                SET NOCOUNT ON;
+                DECLARE @ids TABLE (id bigint PRIMARY KEY);
+                DELETE TOP (:batchSize) FROM alarms_archive
+                OUTPUT deleted.id INTO @ids
+                WHERE created_date < :cutoff;
+                DELETE FROM alarm_bodies WHERE alarm_id IN (SELECT id FROM @ids);
+                SELECT COUNT_BIG(*) AS deleted FROM @ids;
+                """)
+                .bind("batchSize", batchSize)
+                .bind("cutoff", cutoff)
+                .map(row -> row.get("deleted", Long.class))
+                .one()
+                .as(transactionalOperator::transactional);
+    }
+
+    public Mono<AlarmResponse> getById(Long id) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM alarms_archive WHERE id = :id")
+                .bind("id", id)
+                .map(AlarmArchiveService::toEntity)
+                .one()
+                .map(alarmMapper::toDto)
+                .flatMap(alarm -> alarmBodyService.findBody(alarm.getId())
+                        .doOnNext(alarm::setBody)
+                        .thenReturn(alarm));
+    }
+
+    /**
+     * Archived alarms, newest first.
+     */
+    public Flux<AlarmResponse> getAllWithPagination(Pageable pageable) {
+        return databaseClient.sql("SELECT " + COLUMNS + """
+                 FROM alarms_archive
+                ORDER BY created_date DESC, id DESC
+                OFFSET :offset ROWS FETCH NEXT :size ROWS ONLY
+                """)
+                .bind("offset", pageable.getOffset())
+                .bind("size", pageable.getPageSize())
+                .map(AlarmArchiveService::toEntity)
+                .all()
+                .map(alarmMapper::toDto);
+    }
+
+    private static String deletedColumns() {
+        StringBuilder columns = new StringBuilder();
+        for (String column : COLUMNS.split(",")) {
+            columns.append(columns.isEmpty() ? "" : ", ").append("deleted.").append(column.trim());
+        }
+        return columns.toString();
+    }
+
+    static AlarmEntity toEntity(Readable row) {
+        AlarmEntity alarm = new AlarmEntity();
+        alarm.setId(row.get("id", Long.class));
+        alarm.setRuleId(row.get("rule_id", Long.class));
+        alarm.setMessage(row.get("message", String.class));
+        alarm.setAlarmTypeId(row.get("alarm_type_id", Long.class));
+        alarm.setAlarmClassId(row.get("alarm_class_id", Long.class));
+        alarm.setStatus(row.get("status", String.class));
+        alarm.setArchived(row.get("archived", Boolean.class));
+        alarm.setCreatedFrom(row.get("created_from", String.class));
+        alarm.setMetadata(row.get("metadata", String.class));
+        alarm.setRelation(row.get("relation", String.class));
+        alarm.setSubject(row.get("subject", String.class));
+        alarm.setSender(row.get("sender", String.class));
+        alarm.setReceivedAt(row.get("received_at", LocalDateTime.class));
+        alarm.setFingerprint(row.get("fingerprint", String.class));
+        alarm.setOccurrenceCount(row.get("occurrence_count", Integer.class));
+        alarm.setLastSeenAt(row.get("last_seen_at", LocalDateTime.class));
+        alarm.setCreatedDate(row.get("created_date", LocalDateTime.class));
+        alarm.setUpdatedAt(row.get("updated_at", LocalDateTime.class));
+        return alarm;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.alarms.services;
+
+import com.example.alarms.dto.PayloadCompression;
+import org.springframework.core.env.Environment;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Stores the mail body of an alarm apart from the alarm row, so listings and searches never read it.
+ * <p>
+ * Bodies of at least ALARM_COMPRESSION_THRESHOLD_BYTES are compressed by the application unless
+ * ALARM_BODY_COMPRESSION is false, the compressed flag of the row tells how it is stored. Bodies are kept
+ * as UTF-16LE, the encoding of nvarchar, so rows written by the server side COMPRESS stay readable.
+ */
+@Service
+public class AlarmBodyService {
+
+    private final DatabaseClient databaseClient;
+    private final boolean compression;
+    private final int threshold;
+
+    public AlarmBodyService(DatabaseClient databaseClient, Environment env) {
+        this.databaseClient = databaseClient;
+        this.compression = Boolean.parseBoolean(env.getProperty("ALARM_BODY_COMPRESSION", "true"));
+        this.threshold = Integer.parseInt(env.getProperty("ALARM_COMPRESSION_THRESHOLD_BYTES", "1024"));
+    }
+
+    public Mono<Void> save(Long alarmId, String body) {
+        if (alarmId == null || body == null) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> {
+                    byte[] bytes = body.getBytes(StandardCharsets.UTF_16LE);
+                    boolean compress = compression && bytes.length >= threshold;
+                    return new StoredBody(compress ? PayloadCompression.compress(bytes) : bytes, compress);
+                })
+                .flatMap(stored -> databaseClient.sql("""
+                            INSERT INTO alarm_bodies (alarm_id, body, compressed)
+                            VALUES (:alarmId, :body, :compressed)
+                            """)
+                        .bind("alarmId", alarmId)
+                        .bind("body", stored.body())
+                        .bind("compressed", stored.compressed())
+                        .fetch()
+                        .rowsUpdated())
+                .then();
+    }
+
+    public Mono<String> findBody(Long alarmId) {
+        return databaseClient.sql("SELECT body, compressed FROM alarm_bodies WHERE alarm_id = :alarmId")
+                .bind("alarmId", alarmId)
+                .map(row -> new StoredBody(row.get("body", byte[].class), Boolean.TRUE.equals(row.get("compressed", Boolean.class))))
+                .one()
+                .map(stored -> new String(
+                        stored.compressed() ? PayloadCompression.decompress(stored.body()) : stored.body(),
+                        StandardCharsets.UTF_16LE));
+    }
+
+    private record StoredBody(byte[] body, boolean compressed) {
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.alarms.services;
+
+import com.example.alarms.dto.BulkAlarmRequest;
+import com.example.alarms.dto.BulkAlarmResponse;
+import com.example.alarms.dto.JsonUtils;
+import com.example.alarms.exceptions.InvalidActionException;
+import com.example.alarms.services.utils.SqlBatches;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Acknowledges, archives and reassigns many alarms with set-based UPDATEs.
+ * <p>
+ * Alarms are selected by ids or by a filter. Each statement changes at most ALARM_BULK_CHUNK_SIZE rows
+ * in its own short transaction, so a large operation never holds locks on the whole selection.
+ * Filtered operations repeat their chunk until no alarm is left that is not in the target state yet.
+ */
+@Slf4j
+@Service
+public class AlarmBulkService {
+
+    public static final String STATUS_ACKNOWLEDGED = "acknowledged";
+
+    private static final String OPERATION_ACKNOWLEDGE = "acknowledge";
+    private static final String OPERATION_ARCHIVE = "archive";
+    private static final String OPERATION_REASSIGN = "reassign";
+
+    private final DatabaseClient databaseClient;
+    private final int chunkSize;
+
+    public AlarmBulkService(DatabaseClient databaseClient, Environment env) {
+        this.databaseClient = databaseClient;
+        this.chunkSize = Math.min(SqlBatches.rowsPerStatement(1), Integer.parseInt(env.getProperty("ALARM_BULK_CHUNK_SIZE", "1000")));
+    }
+
+    public Mono<BulkAlarmResponse> acknowledge(BulkAlarmRequest request, Long userId) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("status", STATUS_ACKNOWLEDGED);
+        values.put("relation", relation(userId));
+        return execute(OPERATION_ACKNOWLEDGE, request,
+                "status = :status, relation = :relation",
+                "(status IS NULL OR status <> :status)",
+                values);
+    }
+
+    public Mono<BulkAlarmResponse> archive(BulkAlarmRequest request, Long userId) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("relation", relation(userId));
+        // archived = 0 of the base predicate already excludes done rows
+        return execute(OPERATION_ARCHIVE, request,
+                "archived = 1, relation = :relation",
+                null,
+                values);
+    }
+
+    public Mono<BulkAlarmResponse> reassign(BulkAlarmRequest request) {
+        if (request != null && request.getAssigneeId() == null) {
+            return Mono.error(new InvalidActionException("assigneeId is required"));
+        }
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("relation", relation(request != null ? request.getAssigneeId() : null));
+        return execute(OPERATION_REASSIGN, request,
+                "relation = :relation",
+                "(relation IS NULL OR relation <> :relation)",
+                values);
+    }
+
+    private Mono<BulkAlarmResponse> execute(String operation, BulkAlarmRequest request, String set,
+                                            String notDone, Map<String, Object> values) {
+        if (request == null) {
+            return Mono.error(new InvalidActionException("Request body cannot be null"));
+        }
+        boolean byIds = request.getIds() != null && !request.getIds().isEmpty();
+        if (byIds == request.hasFilter()) {
+            return Mono.error(new InvalidActionException("Either ids or a filter is required, not both"));
+        }
+
+        Mono<Long> affected = byIds
+                ? updateByIds(set, values, request.getIds())
+                : updateByFilter(set, notDone, values, request);
+        return affected
+                .doOnNext(count -> log.info("Bulk {} changed {} alarms", operation, count))
+                .map(count -> new BulkAlarmResponse(operation, count));
+    }
+
+    private Mono<Long> updateByIds(String set, Map<String, Object> values, List<Long> ids) {
+        List<List<Long>> chunks = SqlBatches.chunks(ids.stream().distinct().toList(), chunkSize);
+        String sql = """
+            UPDATE alarms SET %s, updated_at = SYSDATETIME()
+            WHERE id IN (:ids) AND archived = 0
+        """.formatted(set);
+        return Flux.fromIterable(chunks)
+                .concatMap(chunk -> bind(databaseClient.sql(sql), values)
+                        .bind("ids", chunk)
+                        .fetch()
+                        .rowsUpdated())
+                .reduce(0L, Long::sum);
+    }
+
+    private Mono<Long> updateByFilter(String set, String notDone, Map<String, Object> values, BulkAlarmRequest request) {
+        Map<String, Object> parameters = new LinkedHashMap<>(values);
+        StringBuilder where = new StringBuilder("archived = 0");
+        if (notDone != null) {
+            where.append(" AND ").append(notDone);
+        }
+        if (request.getRuleId() != null) {
+            where.append(" AND rule_id = :ruleId");
+            parameters.put("ruleId", request.getRuleId());
+        }
+        if (request.getAlarmTypeId() != null) {
+            where.append(" AND alarm_type_id = :alarmTypeId");
+            parameters.put("alarmTypeId", request.getAlarmTypeId());
+        }
+        if (request.getAlarmClassId() != null) {
+            where.append(" AND alarm_class_id = :alarmClassId");
+            parameters.put("alarmClassId", request.getAlarmClassId());
+        }
+        if (request.getStatus() != null) {
+            where.append(" AND status = :filterStatus");
+            parameters.put("filterStatus", request.getStatus());
+        }
+        if (request.getCreatedFrom() != null) {
+            where.append(" AND created_date >= :createdFrom");
+            parameters.put("createdFrom", request.getCreatedFrom());
+        }
+        if (request.getCreatedTo() != null) {
+            where.append(" AND created_date < :createdTo");
+            parameters.put("createdTo", request.getCreatedTo());
+        }
+        String sql = """
+            UPDATE TOP (:chunkSize) alarms SET %s, updated_at = SYSDATETIME()
+            WHERE %s
+        """.formatted(set, where);
+
+        // every chunk moves its rows out of the filter, repeat until one comes back short
+        return Mono.defer(() -> bind(databaseClient.sql(sql), parameters)
+                        .bind("chunkSize", chunkSize)
+                        .fetch()
+                        .rowsUpdated())
+                .repeat()
+                .takeUntil(count -> count < chunkSize)
+                .reduce(0L, Long::sum);
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, Map<String, Object> parameters) {
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            spec = spec.bind(parameter.getKey(), parameter.getValue());
+        }
+        return spec;
+    }
+
+    private static String relation(Long userId) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("userid", userId);
+        return JsonUtils.toJson(map);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.alarms.services;
+
+import com.example.alarms.dto.AlarmClass;
+import com.example.alarms.dto.AlarmClassMapper;
+import com.example.alarms.dto.AlarmMapper;
+import com.example.alarms.dto.AlarmType;
+import com.example.alarms.dto.AlarmTypeMapper;
+import com.example.alarms.dto.AlarmWithTypeAndClass;
+import com.example.alarms.entities.AlarmClassEntity;
+import com.example.alarms.entities.AlarmTypeEntity;
+import com.example.alarms.repositories.AlarmClassRepository;
+import com.example.alarms.repositories.AlarmTypeRepository;
+import org.springframework.core.env.Environment;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Streams alarms with their type and class for export.
+ * <p>
+ * Filtering happens in SQL and rows are read through a server side cursor, ALARM_EXPORT_FETCH_SIZE rows
+ * at a time, as the client consumes them. Types and classes are read once per export, so memory use does
+ * not grow with the number of alarms exported.
+ */
+@Service
+public class AlarmExportService {
+
+    private final DatabaseClient databaseClient;
+    private final AlarmTypeRepository alarmTypeRepository;
+    private final AlarmClassRepository alarmClassRepository;
+    private final AlarmMapper alarmMapper;
+    private final AlarmTypeMapper alarmTypeMapper;
+    private final AlarmClassMapper alarmClassMapper;
+    private final int fetchSize;
+
+    public AlarmExportService(DatabaseClient databaseClient, AlarmTypeRepository alarmTypeRepository,
+                              AlarmClassRepository alarmClassRepository, AlarmMapper alarmMapper,
+                              AlarmTypeMapper alarmTypeMapper, AlarmClassMapper alarmClassMapper, Environment env) {
+        this.databaseClient = databaseClient;
+        this.alarmTypeRepository = alarmTypeRepository;
+        this.alarmClassRepository = alarmClassRepository;
+        this.alarmMapper = alarmMapper;
+        this.alarmTypeMapper = alarmTypeMapper;
+        this.alarmClassMapper = alarmClassMapper;
+        this.fetchSize = Integer.parseInt(env.getProperty("ALARM_EXPORT_FETCH_SIZE", "500"));
+    }
+
+    /**
+     * @param archived null exports alarms in either state
+     * @param archive  read alarms_archive instead of alarms
+     */
+    public Flux<AlarmWithTypeAndClass> export(AlarmSearchService.Filter filter, Boolean archived, boolean archive) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        StringBuilder where = new StringBuilder("1 = 1");
+        if (archived != null) {
+            where.append(" AND archived = :archived");
+            parameters.put("archived", archived);
+        }
+        if (filter.ruleId() != null) {
+            where.append(" AND rule_id = :ruleId");
+            parameters.put("ruleId", filter.ruleId());
+        }
+        if (filter.alarmTypeId() != null) {
+            where.append(" AND alarm_type_id = :alarmTypeId");
+            parameters.put("alarmTypeId", filter.alarmTypeId());
+        }
+        if (filter.alarmClassId() != null) {
+            where.append(" AND alarm_class_id = :alarmClassId");
+            parameters.put("alarmClassId", filter.alarmClassId());
+        }
+        if (filter.from() != null) {
+            where.append(" AND created_date >= :from");
+            parameters.put("from", filter.from());
+        }
+        if (filter.to() != null) {
+            where.append(" AND created_date < :to");
+            parameters.put("to", filter.to());
+        }
+
+        String sql = """
+            SELECT %s
+            FROM %s
+            WHERE %s
+            ORDER BY id
+        """.formatted(AlarmArchiveService.COLUMNS, archive ? "alarms_archive" : "alarms", where);
+
+        Mono<Map<Long, AlarmType>> types = alarmTypeRepository.findAll()
+                .collectMap(AlarmTypeEntity::getId, alarmTypeMapper::toDto);
+        Mono<Map<Long, AlarmClass>> classes = alarmClassRepository.findAll()
+                .collectMap(AlarmClassEntity::getId, alarmClassMapper::toDto);
+
+        return Mono.zip(types, classes)
+                .flatMapMany(lookups -> {
+                    AlarmType noType = alarmTypeMapper.toDto(new AlarmTypeEntity());
+                    AlarmClass noClass = alarmClassMapper.toDto(new AlarmClassEntity());
+                    DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql)
+                            .filter((statement, next) -> next.execute(statement.fetchSize(fetchSize)));
+                    for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+                        spec = spec.bind(parameter.getKey(), parameter.getValue());
+                    }
+                    return spec.map(AlarmArchiveService::toEntity)
+                            .all()
+                            .map(alarm -> new AlarmWithTypeAndClass(
+                                    alarmMapper.toDto(alarm),
+                                    lookup(lookups.getT1(), alarm.getAlarmTypeId(), noType),
+                                    lookup(lookups.getT2(), alarm.getAlarmClassId(), noClass)));
+                });
+    }
+
+    private static <T> T lookup(Map<Long, T> values, Long id, T missing) {
+        T value = id != null ? values.get(id) : null;
+        return value != null ? value : missing;
+    }
+}
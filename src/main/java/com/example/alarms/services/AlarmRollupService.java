@@ -0,0 +1,148 @@
+package com.example.alarms.services;
+
+import com.example.alarms.dto.AlarmStatsPoint;
+import com.example.alarms.exceptions.InvalidActionException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads and writes the alarm_rollup table, alarm counts per hour, rule, type and class.
+ */
+@Service
+@RequiredArgsConstructor
+public class AlarmRollupService {
+
+    public static final String BUCKET_HOUR = "hour";
+    public static final String BUCKET_DAY = "day";
+
+    // groupBy values and their columns
+    private static final Map<String, String> DIMENSIONS = Map.of(
+            "rule", "rule_id",
+            "type", "alarm_type_id",
+            "class", "alarm_class_id");
+
+    private final DatabaseClient databaseClient;
+
+    /**
+     * Adds an alarm occurrence to the bucket of its hour. Called in the transaction that writes the alarm,
+     * so a committed alarm is always counted, and counted once. Writes of the same rule, type and class
+     * within an hour take turns on their bucket row until they commit.
+     *
+     * @param seenAt   time of the occurrence, null for the current database time, the one created_date defaults to
+     * @param inserted true for a new alarm row, false for a repeat folded into an open alarm
+     */
+    public Mono<Void> record(LocalDateTime seenAt, Long ruleId, Long alarmTypeId, Long alarmClassId, boolean inserted) {
+        String sql = """
+            MERGE alarm_rollup WITH (HOLDLOCK) AS target
+            USING (VALUES (DATEADD(hour, DATEDIFF(hour, 0, COALESCE(:seenAt, GETDATE())), 0),
+                           :rule, :type, :class, :alarms))
+                AS source (bucket_start, rule_id, alarm_type_id, alarm_class_id, alarm_count)
+            ON target.bucket_start = source.bucket_start
+            AND target.rule_id = source.rule_id
+            AND target.alarm_type_id = source.alarm_type_id
+            AND target.alarm_class_id = source.alarm_class_id
+            WHEN MATCHED THEN
+                UPDATE SET alarm_count = target.alarm_count + source.alarm_count,
+                           occurrence_count = target.occurrence_count + 1
+            WHEN NOT MATCHED THEN
+                INSERT (bucket_start, rule_id, alarm_type_id, alarm_class_id, alarm_count, occurrence_count)
+                VALUES (source.bucket_start, source.rule_id, source.alarm_type_id, source.alarm_class_id,
+                        source.alarm_count, 1);
+        """;
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql);
+        spec = seenAt != null ? spec.bind("seenAt", seenAt) : spec.bindNull("seenAt", LocalDateTime.class);
+        return spec
+                .bind("rule", orZero(ruleId))
+                .bind("type", orZero(alarmTypeId))
+                .bind("class", orZero(alarmClassId))
+                .bind("alarms", inserted ? 1L : 0L)
+                .fetch()
+                .rowsUpdated()
+                .then();
+    }
+
+    /**
+     * Alarm counts per bucket between from (inclusive) and to (exclusive), optionally split by the groupBy
+     * dimensions (rule, type, class) and filtered to a single rule, type or class.
+     */
+    public Flux<AlarmStatsPoint> getTimeSeries(LocalDateTime from, LocalDateTime to, String bucket, Set<String> groupBy,
+                                               Long ruleId, Long alarmTypeId, Long alarmClassId) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            return Flux.error(new InvalidActionException("from must be before to"));
+        }
+        String bucketColumn;
+        if (BUCKET_HOUR.equals(bucket)) {
+            bucketColumn = "bucket_start";
+        } else if (BUCKET_DAY.equals(bucket)) {
+            bucketColumn = "DATEADD(day, DATEDIFF(day, 0, bucket_start), 0)";
+        } else {
+            return Flux.error(new InvalidActionException("bucket must be one of: " + BUCKET_HOUR + ", " + BUCKET_DAY));
+        }
+        for (String dimension : groupBy) {
+            if (!DIMENSIONS.containsKey(dimension)) {
+                return Flux.error(new InvalidActionException("groupBy must be a list of: " + String.join(", ", DIMENSIONS.keySet())));
+            }
+        }
+
+        StringBuilder select = new StringBuilder(bucketColumn).append(" AS bucket");
+        StringBuilder group = new StringBuilder(bucketColumn);
+        for (String dimension : List.of("rule", "type", "class")) {
+            if (groupBy.contains(dimension)) {
+                select.append(", ").append(DIMENSIONS.get(dimension));
+                group.append(", ").append(DIMENSIONS.get(dimension));
+            }
+        }
+
+        Map<String, Object> filters = new LinkedHashMap<>();
+        StringBuilder where = new StringBuilder("bucket_start >= :from AND bucket_start < :to");
+        filters.put("from", from);
+        filters.put("to", to);
+        if (ruleId != null) {
+            where.append(" AND rule_id = :ruleId");
+            filters.put("ruleId", ruleId);
+        }
+        if (alarmTypeId != null) {
+            where.append(" AND alarm_type_id = :alarmTypeId");
+            filters.put("alarmTypeId", alarmTypeId);
+        }
+        if (alarmClassId != null) {
+            where.append(" AND alarm_class_id = :alarmClassId");
+            filters.put("alarmClassId", alarmClassId);
+        }
+
+        String sql = """
+            SELECT %s, SUM(alarm_count) AS alarm_count, SUM(occurrence_count) AS occurrence_count
+            FROM alarm_rollup
+            WHERE %s
+            GROUP BY %s
+            ORDER BY %s
+        """.formatted(select, where, group, group);
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql);
+        for (Map.Entry<String, Object> filter : filters.entrySet()) {
+            spec = spec.bind(filter.getKey(), filter.getValue());
+        }
+        return spec.map(row -> new AlarmStatsPoint(
+                        row.get("bucket", LocalDateTime.class),
+                        groupBy.contains("rule") ? row.get("rule_id", Long.class) : null,
+                        groupBy.contains("type") ? row.get("alarm_type_id", Long.class) : null,
+                        groupBy.contains("class") ? row.get("alarm_class_id", Long.class) : null,
+                        row.get("alarm_count", Long.class),
+                        row.get("occurrence_count", Long.class)))
+                .all();
+    }
+
+    private static long orZero(Long id) {
+        return id != null ? id : 0L;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.alarms.services;
+
+import com.example.alarms.dto.AlarmMapper;
+import com.example.alarms.dto.AlarmResponse;
+import com.example.alarms.dto.AlarmSearchPage;
+import com.example.alarms.exceptions.InvalidActionException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Full-text search over alarm messages, subjects and senders, backed by the SQL Server full-text indexes
+ * of alarms and alarms_archive. Open alarms are searched in alarms, archived ones in both tables.
+ * <p>
+ * Results are ordered by id, newest first, and paged with the id of the last alarm of the previous page
+ * as cursor, so a page costs the same no matter how deep it is.
+ */
+@Service
+@RequiredArgsConstructor
+public class AlarmSearchService {
+
+    private static final int MAX_TERMS = 10;
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final DatabaseClient databaseClient;
+    private final AlarmMapper alarmMapper;
+
+    public record Filter(Long ruleId, Long alarmTypeId, Long alarmClassId, LocalDateTime from, LocalDateTime to) {
+    }
+
+    /**
+     * @param q      words to find, every word has to match, as prefix
+     * @param cursor nextCursor of the previous page, null for the first page
+     */
+    public Mono<AlarmSearchPage> search(String q, Filter filter, Long cursor, int size, boolean archive) {
+        String condition = toSearchCondition(q);
+        if (condition == null) {
+            return Mono.error(new InvalidActionException("q must contain at least one word"));
+        }
+
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("condition", condition);
+        parameters.put("limit", size + 1);
+        StringBuilder where = new StringBuilder("CONTAINS((message, subject, sender), :condition)");
+        if (filter.ruleId() != null) {
+            where.append(" AND rule_id = :ruleId");
+            parameters.put("ruleId", filter.ruleId());
+        }
+        if (filter.alarmTypeId() != null) {
+            where.append(" AND alarm_type_id = :alarmTypeId");
+            parameters.put("alarmTypeId", filter.alarmTypeId());
+        }
+        if (filter.alarmClassId() != null) {
+            where.append(" AND alarm_class_id = :alarmClassId");
+            parameters.put("alarmClassId", filter.alarmClassId());
+        }
+        if (filter.from() != null) {
+            where.append(" AND created_date >= :from");
+            parameters.put("from", filter.from());
+        }
+        if (filter.to() != null) {
+            where.append(" AND created_date < :to");
+            parameters.put("to", filter.to());
+        }
+        if (cursor != null) {
+            where.append(" AND id < :cursor");
+            parameters.put("cursor", cursor);
+        }
+
+        String sql = archive ? archivedSql(where) : """
+            SELECT TOP (:limit) %s
+            FROM alarms
+            WHERE %s AND archived = 0
+            ORDER BY id DESC
+        """.formatted(AlarmArchiveService.COLUMNS, where);
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql);
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            spec = spec.bind(parameter.getKey(), parameter.getValue());
+        }
+        return spec.map(AlarmArchiveService::toEntity)
+                .all()
+                .map(alarmMapper::toDto)
+                .collectList()
+                .map(alarms -> {
+                    // one row more than the page tells if there is a next page
+                    if (alarms.size() <= size) {
+                        return new AlarmSearchPage(alarms, null);
+                    }
+                    List<AlarmResponse> page = new ArrayList<>(alarms.subList(0, size));
+                    return new AlarmSearchPage(page, page.get(size - 1).getId());
+                });
+    }
+
+    /**
+     * Archived alarms are in alarms_archive, or still in alarms with archived = 1 until the next archiving run
+     * moves them. Ids are kept by the move, so both are merged by id, each taking at most one page.
+     */
+    private static String archivedSql(CharSequence where) {
+        return """
+            SELECT TOP (:limit) *
+            FROM (
+                SELECT * FROM (
+                    SELECT TOP (:limit) %1$s FROM alarms_archive WHERE %2$s ORDER BY id DESC
+                ) AS moved
+                UNION ALL
+                SELECT * FROM (
+                    SELECT TOP (:limit) %1$s FROM alarms WHERE %2$s AND archived = 1 ORDER BY id DESC
+                ) AS not_moved
+            ) AS archived_alarms
+            ORDER BY id DESC
+        """.formatted(AlarmArchiveService.COLUMNS, where);
+    }
+
+    /**
+     * Turns free text into a full-text condition, so user input never reaches the CONTAINS syntax:
+     * hello wor -> "hello*" AND "wor*"
+     */
+    static String toSearchCondition(String q) {
+        if (q == null) {
+            return null;
+        }
+        List<String> terms = new ArrayList<>();
+        for (String term : NON_WORD.split(q)) {
+            if (!term.isEmpty() && terms.size() < MAX_TERMS) {
+                terms.add("\"" + term + "*\"");
+            }
+        }
+        return terms.isEmpty() ? null : String.join(" AND ", terms);
+    }
+}
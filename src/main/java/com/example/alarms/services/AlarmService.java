@@ -10,11 +10,13 @@ import com.example.alarms.repositories.AlarmRepository;
 import com.example.alarms.repositories.AlarmTypeRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import org.springframework.data.domain.Pageable;
 
 
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -27,24 +29,73 @@ public class AlarmService {
     private final AlarmMapper alarmMapper;
     private final AlarmTypeMapper alarmTypeMapper;
     private final AlarmClassMapper alarmClassMapper;
+    private final AlarmRollupService alarmRollupService;
+    private final AlarmBodyService alarmBodyService;
+    private final TransactionalOperator transactionalOperator;
 
-    public AlarmService(AlarmRepository alarmRepository, AlarmTypeRepository alarmTypeRepository, AlarmClassRepository alarmClassRepository, AlarmMapper alarmMapper, AlarmTypeMapper alarmTypeMapper, AlarmClassMapper alarmClassMapper) {
+    public AlarmService(AlarmRepository alarmRepository, AlarmTypeRepository alarmTypeRepository, AlarmClassRepository alarmClassRepository, AlarmMapper alarmMapper, AlarmTypeMapper alarmTypeMapper, AlarmClassMapper alarmClassMapper, AlarmRollupService alarmRollupService, AlarmBodyService alarmBodyService, TransactionalOperator transactionalOperator) {
         this.alarmRepository = alarmRepository;
         this.alarmTypeRepository = alarmTypeRepository;
         this.alarmClassRepository = alarmClassRepository;
         this.alarmMapper = alarmMapper;
         this.alarmTypeMapper = alarmTypeMapper;
         this.alarmClassMapper = alarmClassMapper;
+        this.alarmRollupService = alarmRollupService;
+        this.alarmBodyService = alarmBodyService;
+        this.transactionalOperator = transactionalOperator;
     }
 
     // Save or update an alarm
     public Mono<AlarmResponse> save(AlarmRequest alarmRequest) {
         AlarmEntity alarmEntity = alarmMapper.toEntity(alarmRequest);
         alarmEntity.setId(null);
-        return alarmRepository.save(alarmEntity)
+        return insert(alarmEntity, alarmRequest.getBody())
                 .map(alarmMapper::toDto);
     }
 
+    /**
+     * Inserts an alarm carrying the deduplication fingerprint.
+     */
+    public Mono<AlarmEntity> saveWithFingerprint(AlarmRequest alarmRequest, String fingerprint, LocalDateTime seenAt) {
+        AlarmEntity alarmEntity = alarmMapper.toEntity(alarmRequest);
+        alarmEntity.setId(null);
+        alarmEntity.setFingerprint(fingerprint);
+        alarmEntity.setOccurrenceCount(1);
+        alarmEntity.setLastSeenAt(seenAt);
+        return insert(alarmEntity, alarmRequest.getBody());
+    }
+
+    // the alarm row, its body and its roll-up count are written together
+    private Mono<AlarmEntity> insert(AlarmEntity alarmEntity, String body) {
+        // created_date is the persist time, the column default stamps it when the row is inserted
+        alarmEntity.setCreatedDate(null);
+        return alarmRepository.save(alarmEntity)
+                .flatMap(saved -> alarmBodyService.save(saved.getId(), body)
+                        // counted in the database hour created_date got, so the roll-up and the alarms table agree
+                        .then(alarmRollupService.record(null,
+                                saved.getRuleId(), saved.getAlarmTypeId(), saved.getAlarmClassId(), true))
+                        .thenReturn(saved))
+                .as(transactionalOperator::transactional);
+    }
+
+    public Mono<Long> findOpenIdByFingerprint(String fingerprint, LocalDateTime since) {
+        return alarmRepository.findOpenIdByFingerprint(fingerprint, since);
+    }
+
+    /**
+     * Records a repeat of an open alarm, counted in the roll-up in the same transaction.
+     *
+     * @return false if the alarm no longer exists or was archived
+     */
+    public Mono<Boolean> recordOccurrence(Long id, AlarmRequest alarmRequest, LocalDateTime seenAt) {
+        return alarmRepository.recordOccurrence(id, seenAt)
+                .flatMap(updated -> updated > 0
+                        ? alarmRollupService.record(seenAt, alarmRequest.getRuleId(), alarmRequest.getAlarmTypeId(),
+                                alarmRequest.getAlarmClassId(), false).thenReturn(true)
+                        : Mono.just(false))
+                .as(transactionalOperator::transactional);
+    }
+
     public Mono<AlarmResponse> update(AlarmRequest alarmRequest, Long id, Long userId) {
         if (alarmRequest == null) {
             return Mono.error(new InvalidActionException("Alarm cannot be null"));
@@ -68,7 +119,7 @@ public class AlarmService {
                                     existing.setStatus(alarmRequest.getStatus());
                                     existing.setArchived(alarmRequest.getArchived());
                                     existing.setCreatedFrom(alarmRequest.getCreatedFrom());
-                                    existing.setMetadata(alarmRequest.getMetadata());
+                                    existing.setMetadata(alarmMapper.compressMetadata(alarmRequest.getMetadata()));
                                     existing.setRelation(json);
                                     existing.setAlarmTypeId(alarmRequest.getAlarmTypeId());
                                     existing.setAlarmClassId(alarmRequest.getAlarmClassId());
@@ -81,8 +132,7 @@ public class AlarmService {
     }
 
     public Flux<AlarmWithTypeAndClass> getAll() {
-        return alarmRepository.findAll()
-                .filter(alarmEntity -> !alarmEntity.getArchived())
+        return alarmRepository.findByArchivedFalse()
                 .flatMap(alarm -> {
                     Mono<AlarmTypeEntity> alarmTypeMono = (alarm.getAlarmTypeId() != null)
                             ? alarmTypeRepository.findById(alarm.getAlarmTypeId()).onErrorResume(e -> Mono.empty())
@@ -111,7 +161,14 @@ public class AlarmService {
     public Mono<AlarmResponse> getById(Long id) {
         return alarmRepository.findById(id)
                 .filter(alarmEntity -> !alarmEntity.getArchived())
-                .map(alarmMapper::toDto);
+                .map(alarmMapper::toDto)
+                .flatMap(this::withBody);
+    }
+
+    private Mono<AlarmResponse> withBody(AlarmResponse alarm) {
+        return alarmBodyService.findBody(alarm.getId())
+                .doOnNext(alarm::setBody)
+                .thenReturn(alarm);
     }
 
     // Delete alarm by ID
@@ -136,9 +193,7 @@ public class AlarmService {
 
     // Get all alarms with pagination
     public Flux<AlarmResponse> getAllWithPagination(Pageable pageable) {
-        return alarmRepository.findAllBy(pageable)
-                .filter(alarmEntity -> !alarmEntity.getArchived())
-
+        return alarmRepository.findByArchivedFalse(pageable)
                 .map(alarmMapper::toDto);
     }
 
@@ -156,11 +211,12 @@ public class AlarmService {
                                     : Mono.empty();
 
                             return Mono.zip(alarmTypeMono.defaultIfEmpty(new AlarmTypeEntity()), alarmClassMono.defaultIfEmpty(new AlarmClassEntity())
-                            ).map(tuple ->
+                            ).zipWith(withBody(alarmMapper.toDto(alarm)))
+                            .map(tuple ->
                                     new AlarmWithTypeAndClass(
-                                            alarmMapper.toDto(alarm),
-                                            alarmTypeMapper.toDto(tuple.getT1()),
-                                            alarmClassMapper.toDto(tuple.getT2())));
+                                            tuple.getT2(),
+                                            alarmTypeMapper.toDto(tuple.getT1().getT1()),
+                                            alarmClassMapper.toDto(tuple.getT1().getT2())));
                         }
 
                 );
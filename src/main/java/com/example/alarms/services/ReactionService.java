@@ -3,7 +3,9 @@ package com.example.alarms.services;
 
 import com.example.alarms.entities.ReactionEntity;
 import com.example.alarms.repositories.ReactionRepository;
+import com.example.alarms.services.utils.SqlBatches;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
@@ -16,10 +18,12 @@ import java.util.List;
 public class ReactionService {
 
     private final ReactionRepository reactionRepository;
+    private final DatabaseClient databaseClient;
 
     @Autowired
-    public ReactionService(ReactionRepository reactionRepository) {
+    public ReactionService(ReactionRepository reactionRepository, DatabaseClient databaseClient) {
         this.reactionRepository = reactionRepository;
+        this.databaseClient = databaseClient;
     }
 
     public Flux<ReactionEntity> saveAll(List<ReactionEntity> reactionEntities) {
@@ -28,6 +32,22 @@ public class ReactionService {
                 );
     }
 
+    /**
+     * Inserts many reactions with one statement per chunk of rows and sets the generated ids on them.
+     */
+    public Mono<Void> insertAll(List<ReactionEntity> reactionEntities) {
+        return SqlBatches.insertAll(databaseClient, "reactions", reactionEntities,
+                        reaction -> new Object[]{reaction.getRuleId(), reaction.getName(), reaction.getParams()},
+                        (reaction, id, createdDate, lastModifiedDate) -> {
+                            reaction.setId(id);
+                            reaction.setCreatedDate(createdDate);
+                            reaction.setLastModifiedDate(lastModifiedDate);
+                        },
+                        "rule_id", "name", "params")
+                .then()
+                .onErrorResume(ex -> Mono.error(new RuntimeException("Error saving reactions", ex)));
+    }
+
     public Flux<ReactionEntity> findByRuleId(Long ruleId) {
         return reactionRepository.findByRuleId(ruleId)
                 .onErrorResume(ex -> Mono.error(new IllegalArgumentException("No rule with this id", ex)));
@@ -38,4 +58,8 @@ public class ReactionService {
                 .onErrorResume(ex -> Mono.error(new IllegalArgumentException("No rule with this id", ex)));
 
     }
+
+    public Mono<Void> deleteByActionId(Long actionId) {
+        return reactionRepository.deleteByActionId(actionId).then();
+    }
 }
@@ -16,11 +16,17 @@ public class ReservationService {
     private final ReservationRepository reservationRepository;
     private final ActionService actionService;
 
-    public Mono<Void> updateHeartbeat(Long jobId, String instanceId, LocalDateTime now) {
-        return reservationRepository.updateHeartbeat(jobId, instanceId, now);
+    /**
+     * Extends the lock of the job and stores the latest checkpoint of its action, null keeps the stored one.
+     */
+    public Mono<Void> updateHeartbeat(Long jobId, String instanceId, LocalDateTime now, String checkpoint) {
+        return reservationRepository.updateHeartbeat(jobId, instanceId, now, checkpoint);
     }
     public Mono<Void> releaseJob(Long jobId, String instanceId) {
-        return reservationRepository.releaseJob(jobId, instanceId);
+        return reservationRepository.releaseJob(jobId, instanceId, null);
+    }
+    public Mono<Void> releaseJob(Long jobId, String instanceId, String checkpoint) {
+        return reservationRepository.releaseJob(jobId, instanceId, checkpoint);
     }
     public Flux<ReservationEntity> findAvailableJobs(LocalDateTime jobTimeout, int batchSize) {
         return reservationRepository.findAvailableJobs(jobTimeout, batchSize);
@@ -50,6 +56,7 @@ public class ReservationService {
                     existingJob.setActionId(job.getActionId());
                     existingJob.setLockedBy(job.getLockedBy());
                     existingJob.setLocked_at(job.getLocked_at());
+                    existingJob.setCheckpoint(job.getCheckpoint());
                     return reservationRepository.save(existingJob);
                 });
     }
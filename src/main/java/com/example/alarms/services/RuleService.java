@@ -1,16 +1,20 @@
 package com.example.alarms.services;
 
 import com.example.alarms.dto.JsonUtils;
+import com.example.alarms.dto.Reaction;
 import com.example.alarms.dto.Rule;
 import com.example.alarms.entities.ReactionEntity;
 import com.example.alarms.entities.RuleEntity;
 import com.example.alarms.repositories.RuleRepository;
+import com.example.alarms.services.utils.SqlBatches;
 import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.ArrayList;
+import java.util.List;
 
 @RequiredArgsConstructor
 @Service
@@ -18,19 +22,8 @@ public class RuleService {
 
     private final RuleRepository ruleRepository;
     private final ReactionService reactionService;
-
-    public  Flux<RuleEntity> getByActionId(Long actionID){
-        return ruleRepository.findByActionId(actionID)
-                .flatMap(ruleEntity -> reactionService.findByRuleId(ruleEntity.getId())
-                        .collectList()
-                        .map(reactions -> {
-                            ruleEntity.setReactions(new ArrayList<>(reactions));
-                            return ruleEntity;
-                        }))
-                .onErrorResume(ex -> Mono.error(new RuntimeException("Failed to fetch rule", ex)));
-
-    }
-
+    private final RuleStateService ruleStateService;
+    private final DatabaseClient databaseClient;
 
     /**
      * Fetch all rules.
@@ -52,33 +45,51 @@ public class RuleService {
     }
 
     /**
-     * Create a new rule.
+     * Create the rules of an action together with their reactions.
+     * Rules and reactions are each inserted with one statement per chunk of rows.
      *
-     * @param rule Rule to be created
-     * @return Mono of RuleEntity
+     * @param rules Rules to be created
+     * @return Mono of the created RuleEntities, in request order
      */
-    public Mono<RuleEntity> create(Rule rule, Long actionId) {
-
-        return Mono.fromCallable(() -> JsonUtils.toJson(rule.getDefinition()))
-                .flatMap(ruleJson -> ruleRepository.save(new RuleEntity(null, rule.getName(), ruleJson, actionId, null, null, null)))
-                .flatMap(savedRule -> saveReactions(savedRule, rule));
+    public Mono<List<RuleEntity>> createAll(List<Rule> rules, Long actionId) {
+        return Mono.fromCallable(() -> {
+                    List<RuleEntity> ruleEntities = new ArrayList<>();
+                    for (Rule rule : rules) {
+                        ruleEntities.add(new RuleEntity(null, rule.getName(), JsonUtils.toJson(rule.getDefinition()),
+                                actionId, new ArrayList<>(), null, null));
+                    }
+                    return ruleEntities;
+                })
+                .flatMap(ruleEntities -> insertAll(ruleEntities)
+                        .then(Mono.fromCallable(() -> toReactionEntities(rules, ruleEntities)))
+                        .flatMap(reactionService::insertAll)
+                        .thenReturn(ruleEntities));
     }
 
-    private Mono<RuleEntity> saveReactions(RuleEntity savedRule, Rule rule) {
-        if (rule.getReactions().isEmpty()) {
-            return Mono.empty();
+    private static List<ReactionEntity> toReactionEntities(List<Rule> rules, List<RuleEntity> ruleEntities) {
+        List<ReactionEntity> reactionEntities = new ArrayList<>();
+        for (int i = 0; i < rules.size(); i++) {
+            RuleEntity ruleEntity = ruleEntities.get(i);
+            for (Reaction reaction : rules.get(i).getReactions()) {
+                ReactionEntity reactionEntity = new ReactionEntity(null, reaction.getName(),
+                        JsonUtils.toJson(reaction.getParams()), ruleEntity.getId(), null, null);
+                ruleEntity.getReactions().add(reactionEntity);
+                reactionEntities.add(reactionEntity);
+            }
         }
-        return Flux.fromIterable(rule.getReactions())
-                .flatMap(reaction -> Mono.fromCallable(() -> JsonUtils.toJson(reaction.getParams()))
-                        .map(reactionJson -> new ReactionEntity(null, reaction.getName(), reactionJson, savedRule.getId(), null, null))
-                )
-                .collectList()
-                .flatMap(reactionEntities -> reactionService.saveAll(reactionEntities).collectList())
-                .map(savedReactions -> {
-                    savedRule.setReactions(savedReactions);
-                    return savedRule;
-                })
-                .onErrorResume(ex -> Mono.error(new RuntimeException(ex)));
+        return reactionEntities;
+    }
+
+    private Mono<Void> insertAll(List<RuleEntity> ruleEntities) {
+        return SqlBatches.insertAll(databaseClient, "rules", ruleEntities,
+                        rule -> new Object[]{rule.getActionId(), rule.getName(), rule.getDefinition()},
+                        (rule, id, createdDate, lastModifiedDate) -> {
+                            rule.setId(id);
+                            rule.setCreatedDate(createdDate);
+                            rule.setLastModifiedDate(lastModifiedDate);
+                        },
+                        "action_id", "name", "definition")
+                .then();
     }
 
     /**
@@ -108,11 +119,12 @@ public class RuleService {
         return ruleRepository.deleteById(id);
     }
 
+    /**
+     * Deletes the rules of an action with their reactions and state, one set-based statement per table.
+     */
     public Mono<Void> deleteByActionId(Long actionId) {
-        return ruleRepository.findByActionId(actionId)
-                .flatMap(ruleEntity ->
-                        reactionService.deleteByRuleId(ruleEntity.getId()) // Delete reactions by rule ID
-                )
+        return reactionService.deleteByActionId(actionId)
+                .then(ruleStateService.deleteByActionId(actionId))
                 .then(ruleRepository.deleteByActionId(actionId))
                 .onErrorResume(ex -> Mono.error(new RuntimeException(ex)));
 
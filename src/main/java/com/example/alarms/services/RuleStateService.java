@@ -0,0 +1,66 @@
+package com.example.alarms.services;
+
+import com.example.alarms.entities.RuleStateEntity;
+import com.example.alarms.repositories.RuleStateRepository;
+import com.example.alarms.services.utils.SqlBatches;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores runtime state of rules, so it survives restarts and job migration between nodes.
+ */
+@Service
+@RequiredArgsConstructor
+public class RuleStateService {
+
+    private final RuleStateRepository ruleStateRepository;
+    private final DatabaseClient databaseClient;
+
+    public Flux<RuleStateEntity> findByRuleIds(Collection<Long> ruleIds) {
+        return ruleStateRepository.findAllById(ruleIds);
+    }
+
+    /**
+     * Upserts the states of many rules with one MERGE statement per chunk of rows.
+     *
+     * @return number of rows written
+     */
+    public Mono<Long> saveAll(Map<Long, String> states) {
+        List<Map.Entry<Long, String>> rows = new ArrayList<>(states.entrySet());
+        return Flux.fromIterable(SqlBatches.chunks(rows, SqlBatches.rowsPerStatement(2)))
+                .concatMap(this::merge)
+                .reduce(0L, Long::sum);
+    }
+
+    private Mono<Long> merge(List<Map.Entry<Long, String>> rows) {
+        String sql = """
+            MERGE rule_state WITH (HOLDLOCK) AS target
+            USING (VALUES %s) AS source (rule_id, state)
+            ON target.rule_id = source.rule_id
+            WHEN MATCHED THEN
+                UPDATE SET state = source.state, updated_at = SYSDATETIME()
+            WHEN NOT MATCHED THEN
+                INSERT (rule_id, state, updated_at) VALUES (source.rule_id, source.state, SYSDATETIME());
+        """.formatted(SqlBatches.values(rows.size(), false, "rule", "state"));
+
+        return SqlBatches.bind(databaseClient.sql(sql), rows, row -> new Object[]{row.getKey(), row.getValue()}, "rule", "state")
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Void> deleteByRuleId(Long ruleId) {
+        return ruleStateRepository.deleteById(ruleId);
+    }
+
+    public Mono<Void> deleteByActionId(Long actionId) {
+        return ruleStateRepository.deleteByActionId(actionId).then();
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.alarms.services;
 
+import com.example.alarms.components.AuthenticationCache;
 import com.example.alarms.entities.AccountEntity;
 import com.example.alarms.entities.security.SecurityAccount;
 import com.example.alarms.repositories.AccountRepository;
@@ -15,11 +16,19 @@ public class UserDetailsServiceImpl implements ReactiveUserDetailsService {
     @Autowired
     private AccountRepository accountRepository;
 
+    @Autowired
+    private AuthenticationCache authenticationCache;
+
     @Override
     public Mono<UserDetails> findByUsername(String username) {
+        UserDetails cached = authenticationCache.getUser(username);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
         Mono<AccountEntity> account = accountRepository.findByUsername(username);
 
         // Convert AccountEntity to UserDetails
-        return account.map(SecurityAccount::new);
+        return account.<UserDetails>map(SecurityAccount::new)
+                .doOnNext(authenticationCache::putUser);
     }
 }
\ No newline at end of file
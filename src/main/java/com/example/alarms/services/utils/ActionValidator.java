@@ -1,5 +1,7 @@
 package com.example.alarms.services.utils;
 
+import com.example.alarms.actions.SchedulePolicy;
+import com.example.alarms.actions.utils.BoundedMessageBuffer;
 import com.example.alarms.dto.*;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -101,6 +103,9 @@ public class ActionValidator {
                     errors.add("interval must be a number");
                 }
             }
+
+            errors.addAll(validateSchedulePolicy(params.get("schedule_policy")));
+            errors.addAll(validatePositive(params, "seen_ids_capacity"));
         } else if ("GmailAction".equals(type)) {
             // Required fields for GmailAction
             if (!params.containsKey("client_id") || params.get("client_id") == null ||
@@ -130,11 +135,56 @@ public class ActionValidator {
                     errors.add("interval must be a number");
                 }
             }
+
+            errors.addAll(validateSchedulePolicy(params.get("schedule_policy")));
+            errors.addAll(validatePositive(params, "seen_ids_capacity"));
+            errors.addAll(validatePositive(params, "buffer_capacity"));
+            errors.addAll(validatePositive(params, "drain_batch_size"));
+            if (params.get("overflow_policy") != null) {
+                try {
+                    BoundedMessageBuffer.OverflowPolicy.fromString(params.get("overflow_policy").toString());
+                } catch (IllegalArgumentException e) {
+                    errors.add("overflow_policy must be one of: drop_oldest, drop_newest");
+                }
+            }
         }
 
         return errors;
     }
 
+    /**
+     * Optional whole number of at least 1, e.g. a buffer or cache size
+     */
+    private static List<String> validatePositive(Map<String, Object> params, String name) {
+        List<String> errors = new ArrayList<>();
+        Object value = params.get(name);
+        if (value == null) {
+            return errors;
+        }
+        if (!(value instanceof Integer || value instanceof Long)) {
+            errors.add(name + " must be a whole number");
+        } else if (((Number) value).longValue() < 1 || ((Number) value).longValue() > Integer.MAX_VALUE) {
+            errors.add(name + " must be between 1 and " + Integer.MAX_VALUE);
+        }
+        return errors;
+    }
+
+    /**
+     * Optional, checked here so an unknown policy is rejected before a node claims the job
+     */
+    private static List<String> validateSchedulePolicy(Object policy) {
+        List<String> errors = new ArrayList<>();
+        if (policy == null) {
+            return errors;
+        }
+        try {
+            SchedulePolicy.fromString(policy.toString());
+        } catch (IllegalArgumentException e) {
+            errors.add("schedule_policy must be one of: fixed_rate, fixed_delay, skip_if_busy");
+        }
+        return errors;
+    }
+
     /**
      * Validates a rule
      */
@@ -155,6 +205,7 @@ public class ActionValidator {
             validRuleNames.add("FindPatternInEws");
             validRuleNames.add("FindPatternInGmail");
             validRuleNames.add("DetectMissingEmail");
+            validRuleNames.add("Declarative");
 
             // Add other valid rule names here
 
@@ -175,6 +226,12 @@ public class ActionValidator {
             // Required fields for FindPatternInEws
             if (!definitionMap.containsKey("patterns") || definitionMap.get("patterns") == null) {
                 errors.add(prefix + "definition requires pattern field");
+            } else if (definitionMap.get("patterns") instanceof List<?> patterns) {
+                for (Object pattern : patterns) {
+                    if (pattern instanceof Map<?, ?> patternMap && "regex".equals(patternMap.get("kind"))) {
+                        errors.addAll(validateRegex(patternMap.get("pattern"), prefix));
+                    }
+                }
             }
 
             if (!definitionMap.containsKey("interval")) {
@@ -223,6 +280,23 @@ public class ActionValidator {
 //                    errors.add(prefix + "location must be one of: " + String.join(", ", validLocations));
 //                }
 //            }
+        } else if ("Declarative".equals(rule.getName())) {
+
+            // Required fields for Declarative, the rest is checked when the rule is compiled
+            if (!definitionMap.containsKey("conditions") || definitionMap.get("conditions") == null) {
+                errors.add(prefix + "definition requires conditions field");
+            } else if (definitionMap.get("conditions") instanceof List<?> conditions) {
+                for (Object condition : conditions) {
+                    if (condition instanceof Map<?, ?> conditionMap && "regex".equals(conditionMap.get("operator"))) {
+                        errors.addAll(validateRegex(conditionMap.get("pattern"), prefix));
+                    }
+                }
+            }
+
+            if (!definitionMap.containsKey("alarm_message") || definitionMap.get("alarm_message") == null ||
+                    definitionMap.get("alarm_message").toString().isEmpty()) {
+                errors.add(prefix + "definition requires alarm_message field");
+            }
         }
 
         // Validate reactions array (must be present, can be empty)
@@ -283,6 +357,23 @@ public class ActionValidator {
         return errors;
     }
 
+    /**
+     * Regex patterns are compiled with RE2, which rejects backreferences and lookarounds
+     */
+    private static List<String> validateRegex(Object pattern, String prefix) {
+        List<String> errors = new ArrayList<>();
+        if (pattern == null) {
+            errors.add(prefix + "regex pattern is required");
+            return errors;
+        }
+        try {
+            com.google.re2j.Pattern.compile(pattern.toString());
+        } catch (com.google.re2j.PatternSyntaxException e) {
+            errors.add(prefix + "invalid regex " + pattern + ": " + e.getMessage());
+        }
+        return errors;
+    }
+
     /**
      * Simple URL validation
      */
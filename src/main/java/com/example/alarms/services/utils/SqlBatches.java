@@ -0,0 +1,120 @@
+package com.example.alarms.services.utils;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helpers for statements that carry many rows or ids at once.
+ * <p>
+ * SQL Server allows 2100 parameters per statement. Rows are split into chunks that stay below that, and
+ * each chunk becomes one multi-row VALUES list or one IN list. Parameters are named after their column
+ * and row index, e.g. :name0, :name1.
+ */
+public final class SqlBatches {
+
+    // a few parameters are left for the rest of the statement, e.g. the SET values of a bulk update
+    public static final int MAX_PARAMETERS_PER_STATEMENT = 2000;
+
+    private SqlBatches() {
+    }
+
+    public interface RowBinder<T> {
+        /**
+         * @return the values of the row, in the order of the parameter names
+         */
+        Object[] values(T row);
+    }
+
+    public interface GeneratedKeys<T> {
+        void set(T row, Long id, LocalDateTime createdDate, LocalDateTime lastModifiedDate);
+    }
+
+    /**
+     * @return how many rows of parametersPerRow parameters fit in one statement
+     */
+    public static int rowsPerStatement(int parametersPerRow) {
+        return MAX_PARAMETERS_PER_STATEMENT / parametersPerRow;
+    }
+
+    public static <T> List<List<T>> chunks(List<T> rows, int size) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i += size) {
+            chunks.add(rows.subList(i, Math.min(rows.size(), i + size)));
+        }
+        return chunks;
+    }
+
+    /**
+     * @param ordinal start each row with its index, so OUTPUT can tell which row it belongs to
+     * @return e.g. "(:rule0, :state0), (:rule1, :state1)"
+     */
+    public static String values(int rows, boolean ordinal, String... names) {
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            values.append(i == 0 ? "(" : ", (");
+            if (ordinal) {
+                values.append(i).append(", ");
+            }
+            for (int n = 0; n < names.length; n++) {
+                values.append(n == 0 ? ":" : ", :").append(names[n]).append(i);
+            }
+            values.append(")");
+        }
+        return values.toString();
+    }
+
+    public static <T> DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, List<T> rows,
+                                                             RowBinder<T> binder, String... names) {
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] values = binder.values(rows.get(i));
+            for (int n = 0; n < names.length; n++) {
+                spec = spec.bind(names[n] + i, values[n]);
+            }
+        }
+        return spec;
+    }
+
+    /**
+     * Inserts the rows into a table with an identity id and created_date and last_modified_date defaults,
+     * one statement per chunk, and sets the generated values on them.
+     *
+     * @param columns the inserted columns, also used as parameter names
+     * @return the rows, each once its statement returned
+     */
+    public static <T> Flux<T> insertAll(DatabaseClient databaseClient, String table, List<T> rows,
+                                        RowBinder<T> binder, GeneratedKeys<T> keys, String... columns) {
+        return Flux.fromIterable(chunks(rows, rowsPerStatement(columns.length)))
+                .concatMap(chunk -> insert(databaseClient, table, chunk, binder, keys, columns));
+    }
+
+    private static <T> Flux<T> insert(DatabaseClient databaseClient, String table, List<T> rows,
+                                      RowBinder<T> binder, GeneratedKeys<T> keys, String... columns) {
+        String columnList = String.join(", ", columns);
+        StringBuilder sourceList = new StringBuilder();
+        for (String column : columns) {
+            sourceList.append(sourceList.isEmpty() ? "" : ", ").append("source.").append(column);
+        }
+        // MERGE instead of INSERT, only its OUTPUT can return the source row next to the generated id
+        String sql = """
+            MERGE %s AS target
+            USING (VALUES %s) AS source (ord, %s)
+            ON 1 = 0
+            WHEN NOT MATCHED THEN
+                INSERT (%s) VALUES (%s)
+            OUTPUT source.ord, inserted.id, inserted.created_date, inserted.last_modified_date;
+        """.formatted(table, values(rows.size(), true, columns), columnList, columnList, sourceList);
+
+        return bind(databaseClient.sql(sql), rows, binder, columns)
+                .map(row -> {
+                    T inserted = rows.get(row.get("ord", Integer.class));
+                    keys.set(inserted, row.get("id", Long.class), row.get("created_date", LocalDateTime.class),
+                            row.get("last_modified_date", LocalDateTime.class));
+                    return inserted;
+                })
+                .all();
+    }
+}
@@ -0,0 +1,10 @@
+-- Full-text search over alarm messages (needs the Full-Text Search feature of SQL Server).
+-- CHANGE_TRACKING AUTO feeds the index from every insert and update of the alarm tables.
+CREATE FULLTEXT CATALOG alarms_catalog;
+
+-- full-text needs a named single column unique key, the primary key of alarms is unnamed
+CREATE UNIQUE INDEX ux_alarms_id ON alarms (id);
+
+CREATE FULLTEXT INDEX ON alarms (message) KEY INDEX ux_alarms_id ON alarms_catalog WITH CHANGE_TRACKING AUTO;
+
+CREATE FULLTEXT INDEX ON alarms_archive (message) KEY INDEX alarms_archive_pkey ON alarms_catalog WITH CHANGE_TRACKING AUTO;
@@ -0,0 +1,56 @@
+-- Typed alarm payload: message only holds the alarm message, the mail fields get their own columns
+-- and the mail body moves to alarm_bodies, read on the detail view only.
+ALTER TABLE alarms
+ADD subject nvarchar(998) NULL,
+    sender nvarchar(320) NULL,
+    received_at datetime2 NULL;
+
+ALTER TABLE alarms_archive
+ADD subject nvarchar(998) NULL,
+    sender nvarchar(320) NULL,
+    received_at datetime2 NULL;
+
+-- Body of an alarm of either alarms or alarms_archive, optionally compressed
+CREATE TABLE alarm_bodies (
+    alarm_id bigint NOT NULL,
+    body varbinary(max) NOT NULL,
+    compressed bit NOT NULL DEFAULT 0,
+    CONSTRAINT alarm_bodies_pkey PRIMARY KEY (alarm_id)
+);
+
+-- Existing alarms carry the serialized notification in message, split it up
+INSERT INTO alarm_bodies (alarm_id, body, compressed)
+SELECT a.id, COMPRESS(j.body), 1
+FROM (SELECT id, message FROM alarms UNION ALL SELECT id, message FROM alarms_archive) a
+CROSS APPLY OPENJSON(a.message) WITH (body nvarchar(max) '$.body') j
+WHERE ISJSON(a.message) = 1 AND j.body IS NOT NULL;
+
+UPDATE a
+SET subject = LEFT(j.subject, 998),
+    sender = LEFT(j.sender, 320),
+    received_at = DATEADD(millisecond, j.receivedAt % 1000, DATEADD(second, j.receivedAt / 1000, '19700101')),
+    message = ISNULL(j.message, '')
+FROM alarms a
+CROSS APPLY OPENJSON(a.message) WITH (
+    subject nvarchar(max) '$.subject',
+    sender nvarchar(max) '$.sender',
+    receivedAt bigint '$.receivedAt',
+    message nvarchar(max) '$.message') j
+WHERE ISJSON(a.message) = 1;
+
+UPDATE a
+SET subject = LEFT(j.subject, 998),
+    sender = LEFT(j.sender, 320),
+    received_at = DATEADD(millisecond, j.receivedAt % 1000, DATEADD(second, j.receivedAt / 1000, '19700101')),
+    message = ISNULL(j.message, '')
+FROM alarms_archive a
+CROSS APPLY OPENJSON(a.message) WITH (
+    subject nvarchar(max) '$.subject',
+    sender nvarchar(max) '$.sender',
+    receivedAt bigint '$.receivedAt',
+    message nvarchar(max) '$.message') j
+WHERE ISJSON(a.message) = 1;
+
+-- The body is no longer part of message, search the mail fields next to it
+ALTER FULLTEXT INDEX ON alarms ADD (subject, sender);
+ALTER FULLTEXT INDEX ON alarms_archive ADD (subject, sender);
@@ -0,0 +1,7 @@
+-- Runtime state of rules (absence windows...), one JSON document per rule
+CREATE TABLE rule_state (
+    rule_id bigint NOT NULL,
+    state nvarchar(max) NOT NULL,
+    updated_at datetime2 NOT NULL DEFAULT GETDATE(),
+    CONSTRAINT rule_state_pkey PRIMARY KEY (rule_id)
+);
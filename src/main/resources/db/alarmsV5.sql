@@ -0,0 +1,3 @@
+-- Mailbox position (EWS watermark, IMAP UID) of the action, so a resumed job continues where it stopped
+ALTER TABLE reservations
+ADD checkpoint nvarchar(max) NULL;
@@ -0,0 +1,7 @@
+-- Deduplication of repeated alarms, repeats within the window only bump occurrence_count and last_seen_at
+ALTER TABLE alarms
+ADD fingerprint nvarchar(64) NULL,
+    occurrence_count int NOT NULL DEFAULT 1,
+    last_seen_at datetime2 NULL;
+
+CREATE INDEX ix_alarms_fingerprint ON alarms (fingerprint, created_date) INCLUDE (archived);
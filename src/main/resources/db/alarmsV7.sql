@@ -0,0 +1,33 @@
+-- Indexes for the hot lookups, the guards make the script safe to run again.
+-- Statements end with ';' at the end of a line, QueryPlanTest applies the script statement by statement.
+
+-- findAvailableJobs: seek on status, range on locked_at for stale 'processing' jobs. checkpoint is left out,
+-- it is rewritten on every heartbeat and is read with a key lookup for the few rows returned.
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'ix_reservations_status_locked_at' AND object_id = OBJECT_ID('reservations'))
+    CREATE INDEX ix_reservations_status_locked_at ON reservations (status, locked_at)
+        INCLUDE (locked_by, action_id, created_date);
+
+-- ReservationRepository.deleteByActionId when an action is deleted
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'ix_reservations_action_id' AND object_id = OBJECT_ID('reservations'))
+    CREATE INDEX ix_reservations_action_id ON reservations (action_id);
+
+-- RuleRepository.findByActionId, covers SELECT *
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'ix_rules_action_id' AND object_id = OBJECT_ID('rules'))
+    CREATE INDEX ix_rules_action_id ON rules (action_id)
+        INCLUDE (name, definition, created_date, last_modified_date);
+
+-- ReactionRepository.findByRuleId, covers SELECT *
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'ix_reactions_rule_id' AND object_id = OBJECT_ID('reactions'))
+    CREATE INDEX ix_reactions_rule_id ON reactions (rule_id)
+        INCLUDE (name, params, created_date, last_modified_date);
+
+-- Alarm listing skips archived alarms, archived is never NULL so the filter can seek
+UPDATE alarms SET archived = 0 WHERE archived IS NULL;
+
+IF NOT EXISTS (SELECT 1 FROM sys.default_constraints WHERE name = 'df_alarms_archived')
+    ALTER TABLE alarms ADD CONSTRAINT df_alarms_archived DEFAULT 0 FOR archived;
+
+-- Listing by archived/created_date, the message stays in the clustered index (key lookup per page row)
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'ix_alarms_archived_created_date' AND object_id = OBJECT_ID('alarms'))
+    CREATE INDEX ix_alarms_archived_created_date ON alarms (archived, created_date)
+        INCLUDE (rule_id, alarm_type_id, alarm_class_id, status);
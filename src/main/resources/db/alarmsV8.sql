@@ -0,0 +1,23 @@
+-- Archived and aged alarms are moved here by AlarmArchiver, so the alarms table only holds the working set.
+-- No foreign keys or triggers, rows are written with DELETE ... OUTPUT INTO
+CREATE TABLE alarms_archive (
+    id bigint NOT NULL,
+    rule_id bigint NULL,
+    message nvarchar(max) NOT NULL,
+    alarm_type_id BIGINT NULL,
+    alarm_class_id BIGINT NULL,
+    status nvarchar(100) NULL,
+    archived bit NULL,
+    created_from nvarchar(255) NULL,
+    metadata nvarchar(max) NULL,
+    relation nvarchar(255) NULL,
+    fingerprint nvarchar(64) NULL,
+    occurrence_count int NOT NULL DEFAULT 1,
+    last_seen_at datetime2 NULL,
+    created_date datetime2 NOT NULL,
+    updated_at datetime2 NULL,
+    archived_at datetime2 NOT NULL DEFAULT SYSDATETIME(),
+    CONSTRAINT alarms_archive_pkey PRIMARY KEY (id)
+);
+
+CREATE INDEX ix_alarms_archive_created_date ON alarms_archive (created_date);
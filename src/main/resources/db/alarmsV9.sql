@@ -0,0 +1,22 @@
+-- Alarm counts per hour, rule, type and class, maintained with every alarm write. Unknown ids are stored as 0.
+-- alarm_count counts alarm rows, occurrence_count also counts the repeats folded into them.
+CREATE TABLE alarm_rollup (
+    bucket_start datetime2 NOT NULL,
+    rule_id bigint NOT NULL,
+    alarm_type_id bigint NOT NULL,
+    alarm_class_id bigint NOT NULL,
+    alarm_count bigint NOT NULL,
+    occurrence_count bigint NOT NULL,
+    CONSTRAINT alarm_rollup_pkey PRIMARY KEY (bucket_start, rule_id, alarm_type_id, alarm_class_id)
+);
+
+-- History from before the roll-up existed
+INSERT INTO alarm_rollup (bucket_start, rule_id, alarm_type_id, alarm_class_id, alarm_count, occurrence_count)
+SELECT DATEADD(hour, DATEDIFF(hour, 0, created_date), 0), ISNULL(rule_id, 0), ISNULL(alarm_type_id, 0), ISNULL(alarm_class_id, 0),
+       COUNT(*), SUM(CAST(occurrence_count AS bigint))
+FROM (
+    SELECT created_date, rule_id, alarm_type_id, alarm_class_id, occurrence_count FROM alarms
+    UNION ALL
+    SELECT created_date, rule_id, alarm_type_id, alarm_class_id, occurrence_count FROM alarms_archive
+) history
+GROUP BY DATEADD(hour, DATEDIFF(hour, 0, created_date), 0), ISNULL(rule_id, 0), ISNULL(alarm_type_id, 0), ISNULL(alarm_class_id, 0);
@@ -55,9 +55,14 @@ CREATE TABLE reservations (
     action_id bigint NOT NULL,
     created_date datetime2 NOT NULL DEFAULT GETDATE(),
     locked_at datetime2 NULL,
+    checkpoint nvarchar(max) NULL,
     CONSTRAINT reservations_pkey PRIMARY KEY (id)
 );
 
+CREATE INDEX ix_reservations_status_locked_at ON reservations (status, locked_at)
+    INCLUDE (locked_by, action_id, created_date);
+CREATE INDEX ix_reservations_action_id ON reservations (action_id);
+
 -- Create rules table
 CREATE TABLE rules (
     id bigint IDENTITY(1,1) NOT NULL,
@@ -71,6 +76,9 @@ CREATE TABLE rules (
         REFERENCES actions (id)
 );
 
+CREATE INDEX ix_rules_action_id ON rules (action_id)
+    INCLUDE (name, definition, created_date, last_modified_date);
+
 -- Create alarms table
 CREATE TABLE alarms (
     id bigint IDENTITY(1,1) NOT NULL PRIMARY KEY,
@@ -79,10 +87,16 @@ CREATE TABLE alarms (
     alarm_type_id BIGINT NULL,
     alarm_class_id BIGINT NULL,
     status nvarchar(100) NULL,
-    archived bit NULL,
+    archived bit NULL CONSTRAINT df_alarms_archived DEFAULT 0,
     created_from nvarchar(255) NULL,
     metadata nvarchar(max) NULL,
     relation nvarchar(255) NULL,
+    subject nvarchar(998) NULL,
+    sender nvarchar(320) NULL,
+    received_at datetime2 NULL,
+    fingerprint nvarchar(64) NULL,
+    occurrence_count int NOT NULL DEFAULT 1,
+    last_seen_at datetime2 NULL,
     created_date datetime2 NOT NULL DEFAULT GETDATE(),
     updated_at datetime2 NULL,
 
@@ -95,6 +109,61 @@ CREATE TABLE alarms (
        REFERENCES alarm_classes(id)
 );
 
+CREATE INDEX ix_alarms_fingerprint ON alarms (fingerprint, created_date) INCLUDE (archived);
+CREATE INDEX ix_alarms_archived_created_date ON alarms (archived, created_date)
+    INCLUDE (rule_id, alarm_type_id, alarm_class_id, status);
+
+-- Create alarms_archive table, filled by the archival job
+CREATE TABLE alarms_archive (
+    id bigint NOT NULL,
+    rule_id bigint NULL,
+    message nvarchar(max) NOT NULL,
+    alarm_type_id BIGINT NULL,
+    alarm_class_id BIGINT NULL,
+    status nvarchar(100) NULL,
+    archived bit NULL,
+    created_from nvarchar(255) NULL,
+    metadata nvarchar(max) NULL,
+    relation nvarchar(255) NULL,
+    subject nvarchar(998) NULL,
+    sender nvarchar(320) NULL,
+    received_at datetime2 NULL,
+    fingerprint nvarchar(64) NULL,
+    occurrence_count int NOT NULL DEFAULT 1,
+    last_seen_at datetime2 NULL,
+    created_date datetime2 NOT NULL,
+    updated_at datetime2 NULL,
+    archived_at datetime2 NOT NULL DEFAULT SYSDATETIME(),
+    CONSTRAINT alarms_archive_pkey PRIMARY KEY (id)
+);
+
+CREATE INDEX ix_alarms_archive_created_date ON alarms_archive (created_date);
+
+-- Create alarm_rollup table, alarm counts per hour, unknown ids are stored as 0
+CREATE TABLE alarm_rollup (
+    bucket_start datetime2 NOT NULL,
+    rule_id bigint NOT NULL,
+    alarm_type_id bigint NOT NULL,
+    alarm_class_id bigint NOT NULL,
+    alarm_count bigint NOT NULL,
+    occurrence_count bigint NOT NULL,
+    CONSTRAINT alarm_rollup_pkey PRIMARY KEY (bucket_start, rule_id, alarm_type_id, alarm_class_id)
+);
+
+-- Full-text search over alarm messages
+CREATE FULLTEXT CATALOG alarms_catalog;
+CREATE UNIQUE INDEX ux_alarms_id ON alarms (id);
+CREATE FULLTEXT INDEX ON alarms (message, subject, sender) KEY INDEX ux_alarms_id ON alarms_catalog WITH CHANGE_TRACKING AUTO;
+CREATE FULLTEXT INDEX ON alarms_archive (message, subject, sender) KEY INDEX alarms_archive_pkey ON alarms_catalog WITH CHANGE_TRACKING AUTO;
+
+-- Create alarm_bodies table, mail body of an alarm, read on the detail view only
+CREATE TABLE alarm_bodies (
+    alarm_id bigint NOT NULL,
+    body varbinary(max) NOT NULL,
+    compressed bit NOT NULL DEFAULT 0,
+    CONSTRAINT alarm_bodies_pkey PRIMARY KEY (alarm_id)
+);
+
 -- Create reactions table
 CREATE TABLE reactions (
     id bigint IDENTITY(1,1) NOT NULL,
@@ -106,4 +175,15 @@ CREATE TABLE reactions (
     CONSTRAINT reactions_pkey PRIMARY KEY (id),
     CONSTRAINT fk_rule_alarm_rule_id FOREIGN KEY (rule_id)
         REFERENCES rules (id)
-);
\ No newline at end of file
+);
+
+CREATE INDEX ix_reactions_rule_id ON reactions (rule_id)
+    INCLUDE (name, params, created_date, last_modified_date);
+
+-- Create rule_state table
+CREATE TABLE rule_state (
+    rule_id bigint NOT NULL,
+    state nvarchar(max) NOT NULL,
+    updated_at datetime2 NOT NULL DEFAULT GETDATE(),
+    CONSTRAINT rule_state_pkey PRIMARY KEY (rule_id)
+);
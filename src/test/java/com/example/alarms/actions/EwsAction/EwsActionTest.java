@@ -0,0 +1,54 @@
+package com.example.alarms.actions.EwsAction;
+
+import com.example.alarms.actions.utils.SeenIdFilter;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EwsActionTest {
+
+    @Test
+    void failedFetch_shouldLeaveItAndLaterItemsUnseen() {
+        SeenIdFilter seenIds = new SeenIdFilter(100);
+        List<String> fetched = new ArrayList<>();
+
+        Flux<Object> mails = Flux.create(sink -> EwsAction.emitUnseen(List.of("a", "b", "c"), id -> id, id -> {
+            fetched.add(id);
+            if (id.equals("b")) {
+                throw new IllegalStateException("ErrorServerBusy");
+            }
+            return "mail-" + id;
+        }, seenIds, sink));
+
+        StepVerifier.create(mails)
+                .expectNext("mail-a")
+                .expectError(RuntimeException.class)
+                .verify();
+
+        assertEquals(List.of("a", "b"), fetched);
+        assertTrue(seenIds.contains("a"));
+        assertFalse(seenIds.contains("b"));
+        assertFalse(seenIds.contains("c"));
+    }
+
+    @Test
+    void seenItems_shouldNotBeFetchedAgain() {
+        SeenIdFilter seenIds = new SeenIdFilter(100);
+        seenIds.add("a");
+
+        Flux<Object> mails = Flux.create(sink -> {
+            if (EwsAction.emitUnseen(List.of("a", "b", "b"), id -> id, id -> "mail-" + id, seenIds, sink)) {
+                sink.complete();
+            }
+        });
+
+        StepVerifier.create(mails)
+                .expectNext("mail-b")
+                .verifyComplete();
+    }
+}
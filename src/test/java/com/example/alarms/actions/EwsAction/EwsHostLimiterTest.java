@@ -0,0 +1,104 @@
+package com.example.alarms.actions.EwsAction;
+
+import com.example.alarms.metrics.PipelineMetrics;
+import microsoft.exchange.webservices.data.core.exception.service.remote.ServerBusyException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EwsHostLimiterTest {
+
+    private static final String HOST = "mail.example.com";
+
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void callWaitingOutBackOffDoesNotHoldSlot() throws Exception {
+        EwsHostLimiter limiter = limiter("100", "100");
+        ServerBusyException busy = mock(ServerBusyException.class);
+        when(busy.getBackOffMilliseconds()).thenReturn(1000);
+        CountDownLatch rejected = new CountDownLatch(1);
+        AtomicInteger attempts = new AtomicInteger();
+
+        Future<String> result = callers.submit(() -> limiter.call(HOST, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                rejected.countDown();
+                throw busy;
+            }
+            return "events";
+        }));
+
+        assertTrue(rejected.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        // the retry is sleeping until the back-off ends, nothing is on the wire
+        assertEquals(1, limiter.freeSlots(HOST));
+
+        assertEquals("events", result.get(5, TimeUnit.SECONDS));
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void callWaitingForTokenDoesNotHoldSlot() throws Exception {
+        // one token, the next one is due in a second
+        EwsHostLimiter limiter = limiter("1", "1");
+        assertEquals("first", limiter.call(HOST, () -> "first"));
+
+        Future<String> second = callers.submit(() -> limiter.call(HOST, () -> "second"));
+
+        Thread.sleep(200);
+        assertEquals(1, limiter.freeSlots(HOST));
+        assertEquals("second", second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void callsOnTheWireAreLimited() throws Exception {
+        EwsHostLimiter limiter = limiter("100", "100");
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+
+        Future<?> first = callers.submit(() -> limiter.call(HOST, () -> {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            started.countDown();
+            release.await();
+            return concurrent.decrementAndGet();
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<?> second = callers.submit(() -> limiter.call(HOST, () -> {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            return concurrent.decrementAndGet();
+        }));
+
+        Thread.sleep(200);
+        assertEquals(0, limiter.freeSlots(HOST));
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals(1, maxConcurrent.get());
+    }
+
+    private static EwsHostLimiter limiter(String ratePerSecond, String burst) {
+        return new EwsHostLimiter(mock(PipelineMetrics.class), new MockEnvironment()
+                .withProperty("EWS_RATE_PER_SECOND", ratePerSecond)
+                .withProperty("EWS_BURST", burst)
+                .withProperty("EWS_MAX_IN_FLIGHT", "1"));
+    }
+}
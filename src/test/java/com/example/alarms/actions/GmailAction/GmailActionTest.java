@@ -0,0 +1,45 @@
+package com.example.alarms.actions.GmailAction;
+
+import com.example.alarms.actions.utils.SeenIdFilter;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GmailActionTest {
+
+    private final SeenIdFilter seenUids = new SeenIdFilter(100);
+    private final AtomicLong highestUid = new AtomicLong();
+
+    @Test
+    void messagesWithoutUidAreAllEmitted() {
+        Map<String, Long> uids = Map.of("a", -1L, "b", -1L, "c", 7L);
+
+        StepVerifier.create(emitUnseen(uids, "a", "b", "c"))
+                .expectNext("a", "b", "c")
+                .verifyComplete();
+
+        assertFalse(seenUids.contains("-1"));
+        assertEquals(7, highestUid.get());
+    }
+
+    @Test
+    void seenUidsAreNotEmittedAgain() {
+        seenUids.add("5");
+
+        StepVerifier.create(emitUnseen(Map.of("a", 5L, "b", 6L), "a", "b", "b"))
+                .expectNext("b")
+                .verifyComplete();
+
+        assertEquals(6, highestUid.get());
+    }
+
+    private Flux<Object> emitUnseen(Map<String, Long> uids, String... messages) {
+        return Flux.just(messages)
+                .<Object>handle((message, sink) -> GmailAction.emitUnseen(message, uids.get(message), seenUids, highestUid, sink));
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.alarms.actions.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedMessageBufferTest {
+
+    @Test
+    void dropOldest_shouldEvictHeadWhenFull() {
+        BoundedMessageBuffer<Integer> buffer = new BoundedMessageBuffer<>(2, BoundedMessageBuffer.OverflowPolicy.DROP_OLDEST);
+
+        assertTrue(buffer.offer(1));
+        assertTrue(buffer.offer(2));
+        assertTrue(buffer.offer(3));
+
+        assertEquals(2, buffer.size());
+        assertEquals(1, buffer.getDroppedCount());
+        assertEquals(List.of(2, 3), buffer.drain(10));
+    }
+
+    @Test
+    void dropNewest_shouldRejectWhenFull() {
+        BoundedMessageBuffer<Integer> buffer = new BoundedMessageBuffer<>(2, BoundedMessageBuffer.OverflowPolicy.DROP_NEWEST);
+
+        buffer.offer(1);
+        buffer.offer(2);
+        assertFalse(buffer.offer(3));
+
+        assertEquals(1, buffer.getDroppedCount());
+        assertEquals(List.of(1, 2), buffer.drain(10));
+    }
+
+    @Test
+    void drain_shouldRespectBatchSize() {
+        BoundedMessageBuffer<Integer> buffer = new BoundedMessageBuffer<>(10, BoundedMessageBuffer.OverflowPolicy.DROP_OLDEST);
+        buffer.offerAll(new Integer[]{1, 2, 3, 4, 5});
+
+        assertEquals(List.of(1, 2), buffer.drain(2));
+        assertEquals(3, buffer.size());
+        assertEquals(List.of(3, 4, 5), buffer.drain(5));
+        assertTrue(buffer.drain(5).isEmpty());
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void dropOldest_shouldStayWithinCapacityWhileDrained() throws Exception {
+        int capacity = 4;
+        int producers = 4;
+        int perProducer = 50_000;
+        BoundedMessageBuffer<Integer> buffer = new BoundedMessageBuffer<>(capacity, BoundedMessageBuffer.OverflowPolicy.DROP_OLDEST);
+        ExecutorService executor = Executors.newFixedThreadPool(producers + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean producing = new AtomicBoolean(true);
+        try {
+            List<Future<?>> offers = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                offers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perProducer; i++) {
+                        assertTrue(buffer.offer(i));
+                    }
+                    return null;
+                }));
+            }
+            // draining one at a time empties the queue often, so evictions race the drain
+            Future<Integer> consumer = executor.submit(() -> {
+                start.await();
+                int drained = 0;
+                while (producing.get()) {
+                    drained += buffer.drain(1).size();
+                    assertTrue(buffer.size() <= capacity);
+                }
+                return drained;
+            });
+
+            start.countDown();
+            for (Future<?> offer : offers) {
+                offer.get(30, TimeUnit.SECONDS);
+            }
+            producing.set(false);
+            int drained = consumer.get(30, TimeUnit.SECONDS);
+
+            List<Integer> remaining = buffer.drain(Integer.MAX_VALUE);
+            assertTrue(remaining.size() <= capacity);
+            assertEquals(0, buffer.size());
+            assertEquals((long) producers * perProducer, drained + remaining.size() + buffer.getDroppedCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.alarms.components;
+
+import com.example.alarms.dto.AlarmRequest;
+import com.example.alarms.dto.Notification;
+import com.example.alarms.entities.AlarmEntity;
+import com.example.alarms.metrics.PipelineMetrics;
+import com.example.alarms.services.AlarmService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class AlarmDeduplicatorTest {
+
+    private final AlarmService alarmService = mock(AlarmService.class);
+    private final PipelineMetrics metrics = mock(PipelineMetrics.class);
+
+    private AlarmDeduplicator deduplicator;
+
+    @BeforeEach
+    void setup() {
+        deduplicator = new AlarmDeduplicator(alarmService, metrics, new MockEnvironment());
+        when(alarmService.findOpenIdByFingerprint(anyString(), any(LocalDateTime.class))).thenReturn(Mono.empty());
+        when(alarmService.saveWithFingerprint(any(), anyString(), any(LocalDateTime.class)))
+                .thenReturn(Mono.just(alarm(1L)), Mono.just(alarm(2L)));
+    }
+
+    @Test
+    void firstAlarm_shouldBeInserted() {
+        StepVerifier.create(deduplicator.write(notification(), new AlarmRequest())).verifyComplete();
+
+        verify(alarmService).saveWithFingerprint(any(), anyString(), any(LocalDateTime.class));
+        verify(metrics).recordAlarmDedup(AlarmDeduplicator.OUTCOME_INSERTED);
+    }
+
+    @Test
+    void repeat_shouldBeSuppressed() {
+        when(alarmService.recordOccurrence(eq(1L), any(), any(LocalDateTime.class))).thenReturn(Mono.just(true));
+
+        StepVerifier.create(deduplicator.write(notification(), new AlarmRequest())).verifyComplete();
+        StepVerifier.create(deduplicator.write(notification(), new AlarmRequest())).verifyComplete();
+
+        verify(alarmService, times(1)).saveWithFingerprint(any(), anyString(), any(LocalDateTime.class));
+        verify(alarmService).recordOccurrence(eq(1L), any(), any(LocalDateTime.class));
+        verify(metrics).recordAlarmDedup(AlarmDeduplicator.OUTCOME_SUPPRESSED);
+    }
+
+    @Test
+    void repeatOfAlarmArchivedMeanwhile_shouldOpenNewAlarm() {
+        when(alarmService.recordOccurrence(eq(1L), any(), any(LocalDateTime.class))).thenReturn(Mono.just(false));
+
+        StepVerifier.create(deduplicator.write(notification(), new AlarmRequest())).verifyComplete();
+        StepVerifier.create(deduplicator.write(notification(), new AlarmRequest())).verifyComplete();
+
+        verify(alarmService, times(2)).saveWithFingerprint(any(), anyString(), any(LocalDateTime.class));
+        verify(metrics, never()).recordAlarmDedup(AlarmDeduplicator.OUTCOME_SUPPRESSED);
+    }
+
+    @Test
+    void repeatsWaitingOnFailedLookup_shouldInsertOnce() {
+        Sinks.One<Long> firstLookup = Sinks.one();
+        when(alarmService.findOpenIdByFingerprint(anyString(), any(LocalDateTime.class)))
+                .thenReturn(firstLookup.asMono(), Mono.empty());
+        when(alarmService.recordOccurrence(eq(1L), any(), any(LocalDateTime.class))).thenReturn(Mono.just(true));
+
+        Mono<Void> first = deduplicator.write(notification(), new AlarmRequest());
+        Mono<Void> second = deduplicator.write(notification(), new AlarmRequest());
+        Mono<Void> third = deduplicator.write(notification(), new AlarmRequest());
+
+        StepVerifier.create(Mono.when(first.onErrorResume(e -> Mono.empty()), second, third)
+                        .doOnSubscribe(__ -> firstLookup.tryEmitError(new IllegalStateException("connection reset"))))
+                .verifyComplete();
+
+        verify(alarmService, times(1)).saveWithFingerprint(any(), anyString(), any(LocalDateTime.class));
+        verify(alarmService).recordOccurrence(eq(1L), any(), any(LocalDateTime.class));
+    }
+
+    private static Notification notification() {
+        Notification notification = new Notification();
+        notification.setRuleId(7L);
+        notification.setSubject("Disk full");
+        return notification;
+    }
+
+    private static AlarmEntity alarm(Long id) {
+        AlarmEntity entity = new AlarmEntity();
+        entity.setId(id);
+        return entity;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.alarms.components;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AuthenticationCacheTest {
+
+    @Test
+    void cachedLoginNeedsTheSamePassword() {
+        AuthenticationCache cache = cache(new MockEnvironment());
+        Authentication authentication = authentication("ops");
+        cache.putLogin("ops", "secret", authentication);
+
+        assertSame(authentication, cache.getLogin("ops", "secret"));
+        assertNull(cache.getLogin("ops", "Secret"));
+        assertNull(cache.getLogin("admin", "secret"));
+    }
+
+    @Test
+    void entriesExpireAfterTtl() throws InterruptedException {
+        AuthenticationCache cache = cache(new MockEnvironment().withProperty("AUTH_CACHE_TTL_SECONDS", "0"));
+        cache.putLogin("ops", "secret", authentication("ops"));
+        cache.putUser(user("ops"));
+
+        Thread.sleep(5);
+
+        assertNull(cache.getLogin("ops", "secret"));
+        assertNull(cache.getUser("ops"));
+    }
+
+    @Test
+    void fullCacheKeepsItsLiveEntries() {
+        AuthenticationCache cache = cache(new MockEnvironment().withProperty("AUTH_CACHE_MAX_ENTRIES", "2"));
+        cache.putUser(user("a"));
+        cache.putUser(user("b"));
+        cache.putUser(user("c"));
+
+        assertNotNull(cache.getUser("a"));
+        assertNotNull(cache.getUser("b"));
+        assertNull(cache.getUser("c"));
+    }
+
+    @Test
+    void invalidateDropsOnlyTheEntriesOfThatUser() {
+        AuthenticationCache cache = cache(new MockEnvironment());
+        cache.putLogin("ops", "secret", authentication("ops"));
+        cache.putLogin("ops", "old", authentication("ops"));
+        cache.putUser(user("ops"));
+        cache.putLogin("admin", "secret", authentication("admin"));
+        cache.putUser(user("admin"));
+
+        cache.invalidate("ops");
+
+        assertNull(cache.getLogin("ops", "secret"));
+        assertNull(cache.getLogin("ops", "old"));
+        assertNull(cache.getUser("ops"));
+        assertNotNull(cache.getLogin("admin", "secret"));
+        assertNotNull(cache.getUser("admin"));
+    }
+
+    @Test
+    void disabledCacheKeepsNothing() {
+        AuthenticationCache cache = cache(new MockEnvironment().withProperty("AUTH_CACHE_ENABLED", "false"));
+        cache.putLogin("ops", "secret", authentication("ops"));
+        cache.putUser(user("ops"));
+
+        assertNull(cache.getLogin("ops", "secret"));
+        assertNull(cache.getUser("ops"));
+    }
+
+    private static AuthenticationCache cache(MockEnvironment env) {
+        return new AuthenticationCache(env);
+    }
+
+    private static Authentication authentication(String username) {
+        return UsernamePasswordAuthenticationToken.authenticated(username, null, List.of());
+    }
+
+    private static UserDetails user(String username) {
+        return User.withUsername(username).password("{noop}secret").roles("USER").build();
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.alarms.components;
+
+import com.example.alarms.dto.Notification;
+import com.example.alarms.metrics.PipelineMetrics;
+import com.example.alarms.reactions.Reaction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.publisher.Mono;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class ReactionPipelineTest {
+
+    private final ReactionPipeline pipeline = new ReactionPipeline(new MockEnvironment()
+            .withProperty("REACTION_TIMEOUT_SECONDS", "1")
+            .withProperty("REACTION_CONCURRENCY", "1"), new SimpleMeterRegistry());
+
+    @AfterEach
+    void stop() {
+        pipeline.stop();
+    }
+
+    @Test
+    void failedReaction_shouldNotBeRetriedUnlessRetryable() throws InterruptedException {
+        TestReaction plain = new TestReaction("Plain", attempt -> Mono.error(new ConnectException("refused")), false);
+        TestReaction retryable = new TestReaction("Retryable", attempt -> attempt < 2
+                ? Mono.error(new ConnectException("refused"))
+                : Mono.empty(), true);
+
+        pipeline.submit(new Notification(), List.of(plain, retryable));
+
+        assertTrue(retryable.done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, retryable.attempts.get());
+        // a retry would have started after the 500 ms back-off
+        Thread.sleep(1000);
+        assertEquals(1, plain.attempts.get());
+    }
+
+    @Test
+    void timedOutReaction_shouldNotBeRetried() throws InterruptedException {
+        TestReaction slow = new TestReaction("Slow", attempt -> Mono.delay(Duration.ofSeconds(2)).then(), true);
+
+        pipeline.submit(new Notification(), List.of(slow));
+
+        Thread.sleep(2500);
+        assertEquals(1, slow.attempts.get());
+    }
+
+    @Test
+    void stalledReactionType_shouldNotBlockOtherTypes() throws InterruptedException {
+        TestReaction stalled = new TestReaction("Stalled", attempt -> Mono.never(), false);
+        TestReaction other = new TestReaction("Other", attempt -> Mono.empty(), false);
+
+        for (int i = 0; i < 100; i++) {
+            pipeline.submit(new Notification(), List.of(stalled));
+        }
+        pipeline.submit(new Notification(), List.of(other));
+
+        assertTrue(other.done.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void blockingWorkOutlivingTimeout_shouldKeepItsSlot() throws InterruptedException {
+        BlockingIoExecutor blockingIoExecutor = new BlockingIoExecutor(new MockEnvironment(), mock(PipelineMetrics.class));
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        TestReaction hung = new TestReaction("Hung", attempt -> blockingIoExecutor.run("Hung", pipeline.concurrencyFor("Hung"), () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            // like a send blocked on a socket, the interrupt of the timeout does not end it
+            while (true) {
+                try {
+                    if (release.await(5, TimeUnit.SECONDS)) {
+                        break;
+                    }
+                } catch (InterruptedException ignored) {
+                }
+            }
+            running.decrementAndGet();
+        }), false);
+
+        pipeline.submit(new Notification(), List.of(hung));
+        pipeline.submit(new Notification(), List.of(hung));
+
+        // both executions timed out, the second never got past the worker still blocked in the first
+        Thread.sleep(2500);
+        assertEquals(1, maxRunning.get());
+        release.countDown();
+    }
+
+    private static class TestReaction implements Reaction {
+        private final String type;
+        private final Function<Integer, Mono<Void>> behaviour;
+        private final boolean retryable;
+        private final AtomicInteger attempts = new AtomicInteger();
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        TestReaction(String type, Function<Integer, Mono<Void>> behaviour, boolean retryable) {
+            this.type = type;
+            this.behaviour = behaviour;
+            this.retryable = retryable;
+        }
+
+        @Override
+        public Long getRuleId() {
+            return 1L;
+        }
+
+        @Override
+        public String getType() {
+            return type;
+        }
+
+        @Override
+        public boolean isRetryable(Throwable error) {
+            return retryable && Reaction.isConnectFailure(error);
+        }
+
+        @Override
+        public Mono<Void> execute(Notification notification) {
+            return Mono.defer(() -> behaviour.apply(attempts.incrementAndGet()))
+                    .doOnSuccess(__ -> done.countDown());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.alarms.config.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.server.WebSession;
+import org.springframework.web.server.session.InMemoryWebSessionStore;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AccountBoundSecurityContextRepositoryTest {
+
+    private final AtomicReference<UserDetails> account = new AtomicReference<>();
+    private final AccountBoundSecurityContextRepository repository =
+            new AccountBoundSecurityContextRepository(username -> Mono.justOrEmpty(account.get()));
+
+    private WebSession session;
+    private SecurityContext context;
+
+    @BeforeEach
+    void login() {
+        account.set(user("{noop}secret", "USER"));
+        session = new InMemoryWebSessionStore().createWebSession().block();
+        context = new SecurityContextImpl(UsernamePasswordAuthenticationToken.authenticated("ops", null,
+                account.get().getAuthorities()));
+        StepVerifier.create(repository.save(exchange(), context)).verifyComplete();
+    }
+
+    @Test
+    void unchangedAccountKeepsItsSession() {
+        StepVerifier.create(repository.load(exchange()))
+                .expectNextMatches(loaded -> loaded.getAuthentication().getName().equals("ops"))
+                .verifyComplete();
+        assertFalse(session.isExpired());
+    }
+
+    @Test
+    void passwordChangeInvalidatesSession() {
+        account.set(user("{noop}changed", "USER"));
+
+        StepVerifier.create(repository.load(exchange())).verifyComplete();
+        assertTrue(session.isExpired());
+    }
+
+    @Test
+    void roleChangeInvalidatesSession() {
+        account.set(user("{noop}secret", "ADMIN"));
+
+        StepVerifier.create(repository.load(exchange())).verifyComplete();
+        assertTrue(session.isExpired());
+    }
+
+    @Test
+    void deletedAccountInvalidatesSession() {
+        account.set(null);
+
+        StepVerifier.create(repository.load(exchange())).verifyComplete();
+        assertTrue(session.isExpired());
+    }
+
+    private MockServerWebExchange exchange() {
+        return MockServerWebExchange.builder(MockServerHttpRequest.get("/alarms")).session(session).build();
+    }
+
+    private static UserDetails user(String password, String role) {
+        return User.withUsername("ops").password(password).roles(role).build();
+    }
+}
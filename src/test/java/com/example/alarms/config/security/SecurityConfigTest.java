@@ -0,0 +1,103 @@
+package com.example.alarms.config.security;
+
+import com.example.alarms.services.UserDetailsServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.WebFilterChainProxy;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Goes through the filter chain built by {@link SecurityConfig} with sessions enabled, so the repository
+ * that loads the session of a request is the one under test, not only the one Basic logins save to.
+ */
+public class SecurityConfigTest {
+
+    private final AtomicReference<UserDetails> account = new AtomicReference<>();
+    private WebTestClient client;
+
+    @BeforeEach
+    void setup() {
+        account.set(user("{noop}secret", "USER"));
+        UserDetailsServiceImpl userDetailsService = mock(UserDetailsServiceImpl.class);
+        when(userDetailsService.findByUsername(anyString())).thenAnswer(__ -> Mono.justOrEmpty(account.get()));
+
+        ServerHttpSecurity http = ServerHttpSecurity.http()
+                .authenticationManager(new UserDetailsRepositoryReactiveAuthenticationManager(userDetailsService));
+        SecurityWebFilterChain chain = new SecurityConfig().securityWebFilterChain(http,
+                new MockEnvironment().withProperty("AUTH_SESSIONS_ENABLED", "true"), userDetailsService);
+
+        client = WebTestClient.bindToWebHandler(exchange -> exchange.getResponse().setComplete())
+                .webFilter(new WebFilterChainProxy(chain))
+                .build();
+    }
+
+    @Test
+    void sessionOfUnchangedAccountStaysValid() {
+        String session = login();
+
+        client.get().uri("/alarms").cookie("SESSION", session)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    void passwordChangeEndsSession() {
+        String session = login();
+        account.set(user("{noop}changed", "USER"));
+
+        client.get().uri("/alarms").cookie("SESSION", session)
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    void deletedAccountEndsSession() {
+        String session = login();
+        account.set(null);
+
+        client.get().uri("/alarms").cookie("SESSION", session)
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    void changeWithSessionNeedsCsrfToken() {
+        String session = login();
+
+        client.post().uri("/alarms").cookie("SESSION", session)
+                .exchange()
+                .expectStatus().isForbidden();
+    }
+
+    private String login() {
+        ResponseCookie session = client.get().uri("/alarms")
+                .header(HttpHeaders.AUTHORIZATION, "Basic " + HttpHeaders.encodeBasicAuth("ops", "secret", null))
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Void.class)
+                .getResponseCookies()
+                .getFirst("SESSION");
+        assertNotNull(session);
+        return session.getValue();
+    }
+
+    private static UserDetails user(String password, String role) {
+        return User.withUsername("ops").password(password).roles(role).build();
+    }
+}
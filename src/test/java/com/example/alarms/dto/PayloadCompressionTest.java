@@ -0,0 +1,31 @@
+package com.example.alarms.dto;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PayloadCompressionTest {
+
+    @Test
+    void largeTextIsCompressedAndRestored() {
+        String text = "{\"html\":\"" + "<p>disk full on node 7</p>".repeat(200) + "\"}";
+        String stored = PayloadCompression.compressText(text, 1024);
+        assertTrue(stored.startsWith(PayloadCompression.TEXT_MARKER));
+        assertTrue(stored.length() < text.length());
+        assertEquals(text, PayloadCompression.decompressText(stored));
+    }
+
+    @Test
+    void textBelowThresholdIsStoredAsIs() {
+        String text = "{\"traceId\":\"abc\"}";
+        assertSame(text, PayloadCompression.compressText(text, 1024));
+    }
+
+    @Test
+    void valuesWithoutMarkerAreReadAsIs() {
+        String text = "{\"traceId\":\"abc\"}";
+        assertSame(text, PayloadCompression.decompressText(text));
+    }
+}
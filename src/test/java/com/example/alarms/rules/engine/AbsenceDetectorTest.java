@@ -0,0 +1,119 @@
+package com.example.alarms.rules.engine;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AbsenceDetectorTest {
+
+    private static final String MISSED = "missed";
+
+    @Test
+    void alarmsWhenNoMessageArrivesInWindow() {
+        // window closes 11 minutes from now
+        LocalTime pointInTime = LocalTime.now().plusMinutes(10).truncatedTo(ChronoUnit.SECONDS);
+
+        StepVerifier.withVirtualTime(() -> {
+                    Sinks.One<String> alarms = Sinks.one();
+                    detector(pointInTime, Duration.ofMinutes(1), alarms).start();
+                    return alarms.asMono();
+                })
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMinutes(10))
+                .thenAwait(Duration.ofMinutes(2))
+                .expectNext(MISSED)
+                .verifyComplete();
+    }
+
+    @Test
+    void messageInWindowCancelsAlarm() {
+        // window opened 4 minutes ago and closes in 6
+        LocalTime pointInTime = LocalTime.now().plusMinutes(1).truncatedTo(ChronoUnit.SECONDS);
+
+        StepVerifier.withVirtualTime(() -> {
+                    Sinks.One<String> alarms = Sinks.one();
+                    AbsenceDetector detector = detector(pointInTime, Duration.ofMinutes(5), alarms);
+                    detector.start();
+                    long now = System.currentTimeMillis();
+                    assertTrue(detector.awaits(now));
+                    detector.markReceived();
+                    return alarms.asMono();
+                })
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMinutes(30))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void windowClosedWhileUnownedAlarmsRightAfterRestore() {
+        // the previous owner of the job stopped before the window closed, 29 minutes ago
+        LocalDateTime pointInTime = LocalDateTime.now().minusMinutes(30).truncatedTo(ChronoUnit.SECONDS);
+
+        StepVerifier.withVirtualTime(() -> {
+                    Sinks.One<String> alarms = Sinks.one();
+                    AbsenceDetector detector = detector(pointInTime.toLocalTime(), Duration.ofMinutes(1), alarms);
+                    detector.restore(new AbsenceDetector.WindowState(pointInTime.toLocalDate().toString(), false, false));
+                    detector.start();
+                    return alarms.asMono();
+                })
+                .expectSubscription()
+                .thenAwait()
+                .expectNext(MISSED)
+                .verifyComplete();
+    }
+
+    @Test
+    void windowFiredByPreviousOwnerDoesNotAlarmAgainAfterRestore() {
+        LocalDateTime pointInTime = LocalDateTime.now().minusMinutes(30).truncatedTo(ChronoUnit.SECONDS);
+        AbsenceDetector[] restored = new AbsenceDetector[1];
+
+        StepVerifier.withVirtualTime(() -> {
+                    Sinks.One<String> alarms = Sinks.one();
+                    restored[0] = detector(pointInTime.toLocalTime(), Duration.ofMinutes(1), alarms);
+                    restored[0].restore(new AbsenceDetector.WindowState(pointInTime.toLocalDate().toString(), false, true));
+                    restored[0].start();
+                    return alarms.asMono();
+                })
+                .expectSubscription()
+                .expectNoEvent(Duration.ofHours(1))
+                .thenCancel()
+                .verify();
+
+        // moved on to the next window
+        assertEquals(pointInTime.toLocalDate().plusDays(1).toString(), restored[0].snapshot().windowDate());
+    }
+
+    @Test
+    void stoppedDetectorDoesNotAlarm() {
+        LocalTime pointInTime = LocalTime.now().plusMinutes(10).truncatedTo(ChronoUnit.SECONDS);
+
+        StepVerifier.withVirtualTime(() -> {
+                    Sinks.One<String> alarms = Sinks.one();
+                    AbsenceDetector detector = detector(pointInTime, Duration.ofMinutes(1), alarms);
+                    detector.start();
+                    return Mono.fromRunnable(detector::stop).then(alarms.asMono());
+                })
+                .expectSubscription()
+                .expectNoEvent(Duration.ofHours(1))
+                .thenCancel()
+                .verify();
+    }
+
+    private static AbsenceDetector detector(LocalTime pointInTime, Duration tolerance, Sinks.One<String> alarms) {
+        // inside withVirtualTime the parallel scheduler is the virtual time scheduler
+        return new AbsenceDetector(1L, pointInTime, tolerance, Schedulers.parallel(),
+                () -> alarms.tryEmitValue(MISSED), () -> {
+                });
+    }
+}
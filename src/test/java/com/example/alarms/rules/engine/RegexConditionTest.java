@@ -0,0 +1,50 @@
+package com.example.alarms.rules.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegexConditionTest {
+
+    private static MessageContext context(String body, long budgetNanos) {
+        return new MessageContext(new CachedMessageView() {
+            @Override
+            protected String load(String name) {
+                return MessageView.BODY.equals(name) ? body : null;
+            }
+
+            @Override
+            public Long receivedAt() {
+                return null;
+            }
+        }, budgetNanos);
+    }
+
+    @Test
+    void findsPatternIgnoringCase() {
+        RegexCondition condition = new RegexCondition(MessageView.BODY, "inc\\d{6}", false);
+
+        assertTrue(condition.test(context("Ticket INC004711 opened", TimeUnit.SECONDS.toNanos(1))));
+        assertFalse(condition.test(context("Ticket INC47 opened", TimeUnit.SECONDS.toNanos(1))));
+    }
+
+    @Test
+    void backtrackingPatternRunsInLinearTime() {
+        RegexCondition condition = new RegexCondition(MessageView.BODY, "(a+)+$", true);
+        String body = "a".repeat(100_000) + "!";
+
+        long start = System.nanoTime();
+        assertFalse(condition.test(context(body, TimeUnit.SECONDS.toNanos(10))));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test
+    void exceededBudgetIsNoMatch() {
+        RegexCondition condition = new RegexCondition(MessageView.BODY, "needle", true);
+        String body = "x".repeat(1_000_000) + "needle";
+
+        assertFalse(condition.test(context(body, 0)));
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.alarms.rules.engine;
+
+import com.example.alarms.components.ReactionPipeline;
+import com.example.alarms.dto.Notification;
+import com.example.alarms.entities.RuleEntity;
+import com.example.alarms.metrics.PipelineMetrics;
+import com.example.alarms.metrics.TraceContext;
+import com.example.alarms.rules.DetectMissingEmail.DetectMissingEmailDefinition;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RuleCompilerTest {
+
+    private ReactionPipeline reactionPipeline;
+    private RuleCompiler compiler;
+
+    @BeforeEach
+    void setup() {
+        reactionPipeline = mock(ReactionPipeline.class);
+        compiler = new RuleCompiler(reactionPipeline, mock(PipelineMetrics.class), mock(RuleStateStore.class),
+                new MockEnvironment());
+    }
+
+    @Test
+    void equalConditionsAreEvaluatedOncePerMessage() {
+        RuleSet ruleSet = compile(
+                rule(1L, "Declarative", """
+                        {"conditions": [{"field": "body", "pattern": "Disk full"}], "alarm_message": "disk"}"""),
+                rule(2L, "Declarative", """
+                        {"conditions": [{"field": "body", "pattern": "disk FULL"},
+                                        {"field": "subject", "pattern": "node 7"}],
+                         "alarm_message": "disk on node 7"}"""));
+
+        assertEquals(2, ruleSet.getDistinctConditions());
+
+        CountingView message = new CountingView(Map.of("body", "DISK FULL on /var", "subject", "Node 7"));
+        evaluate(ruleSet, message);
+
+        assertEquals(1, message.reads("body"));
+        assertEquals(1, message.reads("subject"));
+        assertEquals(List.of("disk", "disk on node 7"), submittedMessages(2));
+    }
+
+    @Test
+    void caseSensitiveAndInsensitiveConditionsAreKeptApart() {
+        RuleSet ruleSet = compile(
+                rule(1L, "Declarative", """
+                        {"conditions": [{"field": "body", "pattern": "Disk full"}], "alarm_message": "any case"}"""),
+                rule(2L, "Declarative", """
+                        {"conditions": [{"field": "body", "pattern": "Disk full", "case_sensitive": true}],
+                         "alarm_message": "exact case"}"""));
+
+        assertEquals(2, ruleSet.getDistinctConditions());
+
+        evaluate(ruleSet, new CountingView(Map.of("body", "disk full")));
+
+        assertEquals(List.of("any case"), submittedMessages(1));
+    }
+
+    @Test
+    void findPatternInEwsMatchesAllPatternsIgnoringCaseAfterRepetitions() {
+        RuleSet ruleSet = compile(rule(1L, "FindPatternInEws", """
+                {"patterns": [{"pattern": "Disk Full", "location": "body"},
+                              {"pattern": "node \\\\d+", "location": "subject", "kind": "regex"}],
+                 "interval": 60, "repetition": 2, "alarm_message": "disk",
+                 "start_time": "00:00", "end_time": "23:59:59.999999999"}"""));
+
+        evaluate(ruleSet, new CountingView(Map.of("body", "disk full", "subject", "NODE 7")));
+        verify(reactionPipeline, never()).submit(any(), any());
+
+        // one of the patterns only, doesn't count
+        evaluate(ruleSet, new CountingView(Map.of("body", "disk full", "subject", "backup done")));
+        verify(reactionPipeline, never()).submit(any(), any());
+
+        evaluate(ruleSet, new CountingView(Map.of("body", "DISK FULL", "subject", "node 12")));
+        assertEquals(List.of("disk"), submittedMessages(1));
+    }
+
+    @Test
+    void findPatternInEwsOutsideTimeWindowDoesNotMatch() {
+        // wraps around midnight and only covers its first and last instant
+        RuleSet ruleSet = compile(rule(1L, "FindPatternInEws", """
+                {"patterns": [{"pattern": "disk", "location": "body"}],
+                 "interval": 60, "repetition": 1, "alarm_message": "disk",
+                 "start_time": "23:59:59.999999999", "end_time": "00:00"}"""));
+
+        evaluate(ruleSet, new CountingView(Map.of("body", "disk full")));
+
+        verify(reactionPipeline, never()).submit(any(), any());
+    }
+
+    @Test
+    void findPatternInGmailMatchesCaseSensitively() {
+        RuleSet ruleSet = compile(rule(1L, "FindPatternInGmail", """
+                {"pattern": "Disk Full", "location": "body", "interval": 60, "repetition": 1,
+                 "alarm_message": "disk", "max_body_bytes": 1024}"""));
+
+        assertEquals(1024, ruleSet.getMaxBodyBytes());
+
+        evaluate(ruleSet, new CountingView(Map.of("body", "disk full")));
+        verify(reactionPipeline, never()).submit(any(), any());
+
+        evaluate(ruleSet, new CountingView(Map.of("body", "Disk Full on /var")));
+        assertEquals(List.of("disk"), submittedMessages(1));
+    }
+
+    @Test
+    void detectMissingEmailBecomesAnAbsenceRuleMatchingAnyPattern() throws Exception {
+        String json = """
+                {"patterns": [{"pattern": "backup done", "location": "subject"},
+                              {"pattern": "backup ok", "location": "body"}],
+                 "point_in_time": "15:00", "tolerance": 300, "alarm_message": "no backup"}""";
+
+        RuleDefinition definition = compiler.toRuleDefinition("DetectMissingEmail", json);
+
+        assertEquals(RuleDefinition.MATCH_ANY, definition.getMatch());
+        assertEquals("15:00", definition.getAbsence().getPointInTime());
+        assertEquals(300, definition.getAbsence().getTolerance());
+        assertEquals(2, definition.getConditions().size());
+        assertFalse(definition.getConditions().get(0).isCaseSensitive());
+        assertEquals(new ObjectMapper().readValue(json, DetectMissingEmailDefinition.class).toRuleDefinition(), definition);
+
+        // messages only cancel the absence timer, they never raise an alarm themselves
+        RuleSet ruleSet = compile(rule(1L, "DetectMissingEmail", json));
+        evaluate(ruleSet, new CountingView(Map.of("subject", "Backup done")));
+        verify(reactionPipeline, never()).submit(any(), any());
+    }
+
+    private RuleSet compile(RuleEntity... rules) {
+        return compiler.compile(List.of(rules), 1L, 2L, __ -> List.of());
+    }
+
+    private static RuleEntity rule(Long id, String name, String definition) {
+        return new RuleEntity(id, name, definition, 10L, new ArrayList<>(), null, null);
+    }
+
+    private static void evaluate(RuleSet ruleSet, MessageView message) {
+        MessageContext context = new MessageContext(message, ruleSet.getRegexBudgetNanos());
+        ruleSet.getRules().forEach(rule -> rule.evaluate(context, TraceContext.none()));
+    }
+
+    private List<String> submittedMessages(int times) {
+        ArgumentCaptor<Notification> notifications = ArgumentCaptor.forClass(Notification.class);
+        verify(reactionPipeline, times(times)).submit(notifications.capture(), any());
+        return notifications.getAllValues().stream().map(Notification::getMessage).toList();
+    }
+
+    /**
+     * Uncached view counting the reads of each field, so every condition evaluation shows up.
+     */
+    private static class CountingView implements MessageView {
+
+        private final Map<String, String> fields;
+        private final Map<String, Integer> reads = new HashMap<>();
+
+        CountingView(Map<String, String> fields) {
+            this.fields = fields;
+        }
+
+        int reads(String name) {
+            return reads.getOrDefault(name, 0);
+        }
+
+        @Override
+        public String field(String name) {
+            reads.merge(name, 1, Integer::sum);
+            return fields.get(name);
+        }
+
+        @Override
+        public String fieldLowerCase(String name) {
+            String value = field(name);
+            return value != null ? value.toLowerCase(Locale.ROOT) : null;
+        }
+
+        @Override
+        public Long receivedAt() {
+            return System.currentTimeMillis();
+        }
+    }
+}
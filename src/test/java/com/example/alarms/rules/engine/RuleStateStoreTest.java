@@ -0,0 +1,162 @@
+package com.example.alarms.rules.engine;
+
+import com.example.alarms.components.ReactionPipeline;
+import com.example.alarms.entities.RuleEntity;
+import com.example.alarms.entities.RuleStateEntity;
+import com.example.alarms.metrics.PipelineMetrics;
+import com.example.alarms.metrics.TraceContext;
+import com.example.alarms.services.RuleStateService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+class RuleStateStoreTest {
+
+    private static final String DEFINITION = """
+            {"conditions": [{"field": "body", "pattern": "disk full"}],
+             "count": {"repetition": 10, "interval": 3600}, "alarm_message": "disk"}""";
+
+    private RuleStateService ruleStateService;
+    private RuleStateStore store;
+    private RuleCompiler compiler;
+
+    @BeforeEach
+    void setup() {
+        ruleStateService = mock(RuleStateService.class);
+        when(ruleStateService.saveAll(anyMap())).thenAnswer(invocation -> Mono.just((long) invocation.<Map<?, ?>>getArgument(0).size()));
+        store = new RuleStateStore(ruleStateService, new MockEnvironment());
+        compiler = new RuleCompiler(mock(ReactionPipeline.class), mock(PipelineMetrics.class), store, new MockEnvironment());
+    }
+
+    @Test
+    void checkpointWritesDirtyRulesInOneBatch() {
+        RuleSet ruleSet = compile(1L, 2L, 3L);
+        match(ruleSet.getRules().get(0));
+        match(ruleSet.getRules().get(2));
+
+        StepVerifier.create(store.checkpoint(ruleSet.getRules())).verifyComplete();
+
+        Map<Long, String> states = savedStates(1);
+        assertEquals(List.of(1L, 3L), List.copyOf(states.keySet()));
+        assertTrue(states.get(1L).contains("match_timestamps"));
+
+        // nothing changed since, nothing to write
+        StepVerifier.create(store.checkpoint(ruleSet.getRules())).verifyComplete();
+        verify(ruleStateService, times(1)).saveAll(anyMap());
+    }
+
+    @Test
+    void failedCheckpointIsRetriedWithTheNextOne() {
+        RuleSet ruleSet = compile(1L);
+        match(ruleSet.getRules().get(0));
+        when(ruleStateService.saveAll(anyMap())).thenReturn(Mono.error(new IllegalStateException("down")));
+
+        StepVerifier.create(store.checkpoint(ruleSet.getRules())).verifyComplete();
+
+        when(ruleStateService.saveAll(anyMap())).thenReturn(Mono.just(1L));
+        StepVerifier.create(store.checkpoint(ruleSet.getRules())).verifyComplete();
+        verify(ruleStateService, times(2)).saveAll(anyMap());
+    }
+
+    @Test
+    void stoppedRuleIsNotCheckpointedAgain() {
+        RuleSet ruleSet = compile(1L);
+        CompiledRule rule = ruleSet.getRules().get(0);
+        match(rule);
+
+        // the stop checkpoint hands the state over to the next owner
+        StepVerifier.create(ruleSet.stop()).verifyComplete();
+        savedStates(1);
+
+        // a message still in flight when the job stopped changes the state afterwards
+        match(rule);
+        StepVerifier.create(store.checkpoint(List.of(rule))).verifyComplete();
+
+        verify(ruleStateService, times(1)).saveAll(anyMap());
+    }
+
+    @Test
+    void stopCheckpointThatFailsIsNotRetried() {
+        RuleSet ruleSet = compile(1L);
+        match(ruleSet.getRules().get(0));
+        when(ruleStateService.saveAll(anyMap())).thenReturn(Mono.error(new IllegalStateException("down")));
+
+        StepVerifier.create(ruleSet.stop()).verifyComplete();
+        StepVerifier.create(store.checkpoint(ruleSet.getRules())).verifyComplete();
+
+        verify(ruleStateService, times(1)).saveAll(anyMap());
+    }
+
+    @Test
+    void restoreContinuesFromCheckpointedState() {
+        RuleSet previousOwner = compile(1L, 2L);
+        match(previousOwner.getRules().get(0));
+        match(previousOwner.getRules().get(0));
+        StepVerifier.create(previousOwner.stop()).verifyComplete();
+        Map<Long, String> states = savedStates(1);
+
+        when(ruleStateService.findByRuleIds(any())).thenReturn(Flux.just(
+                new RuleStateEntity(1L, states.get(1L), null),
+                new RuleStateEntity(2L, "{\"v\": 99}", null)));
+
+        RuleSet nextOwner = compile(1L, 2L);
+        StepVerifier.create(nextOwner.start()).verifyComplete();
+
+        assertEquals(previousOwner.getRules().get(0).snapshot(), nextOwner.getRules().get(0).snapshot());
+        // unknown version, starts empty
+        assertEquals(List.of(), nextOwner.getRules().get(1).snapshot().matchTimestamps());
+        nextOwner.stop().block();
+    }
+
+    @Test
+    void unreadableStateIsIgnored() {
+        when(ruleStateService.findByRuleIds(any())).thenReturn(Flux.just(new RuleStateEntity(1L, "not json", null)));
+
+        RuleSet ruleSet = compile(1L);
+        StepVerifier.create(ruleSet.start()).verifyComplete();
+
+        assertEquals(List.of(), ruleSet.getRules().get(0).snapshot().matchTimestamps());
+    }
+
+    private RuleSet compile(Long... ruleIds) {
+        List<RuleEntity> rules = new ArrayList<>();
+        for (Long ruleId : ruleIds) {
+            rules.add(new RuleEntity(ruleId, "Declarative", DEFINITION, 10L, new ArrayList<>(), null, null));
+        }
+        return compiler.compile(rules, 1L, 2L, __ -> List.of());
+    }
+
+    private static void match(CompiledRule rule) {
+        rule.evaluate(new MessageContext(new CachedMessageView() {
+            @Override
+            protected String load(String name) {
+                return MessageView.BODY.equals(name) ? "disk full on /var" : null;
+            }
+
+            @Override
+            public Long receivedAt() {
+                return System.currentTimeMillis();
+            }
+        }, Long.MAX_VALUE / 2), TraceContext.none());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, String> savedStates(int times) {
+        ArgumentCaptor<Map<Long, String>> states = ArgumentCaptor.forClass(Map.class);
+        verify(ruleStateService, times(times)).saveAll(states.capture());
+        return states.getValue();
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.alarms.services;
+
+import com.example.alarms.dto.ActionRequest;
+import com.example.alarms.dto.Reaction;
+import com.example.alarms.dto.Rule;
+import com.example.alarms.entities.ActionEntity;
+import com.example.alarms.repositories.ActionRepository;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that an action, its rules and its reactions are created all or none, against SQL Server.
+ * <p>
+ * Needs an empty scratch database, see {@link com.example.alarms.repositories.QueryPlanTest}. The reactions
+ * table rejects params mentioning fail.example.com, so a reaction insert can fail after the action and
+ * its rules were written.
+ */
+@EnabledIfEnvironmentVariable(named = "MSSQL_TEST_URL", matches = ".+")
+public class ActionServiceTest {
+
+    private static final List<String> TABLES = List.of("reactions", "rules", "actions");
+
+    private static DatabaseClient databaseClient;
+    private static ActionService service;
+
+    @BeforeAll
+    static void setup() {
+        ConnectionFactory connectionFactory = ConnectionFactories.get(System.getenv("MSSQL_TEST_URL"));
+        databaseClient = DatabaseClient.create(connectionFactory);
+        dropTables();
+
+        execute("""
+            CREATE TABLE actions (
+                id bigint IDENTITY(1,1) NOT NULL PRIMARY KEY,
+                type nvarchar(100) NOT NULL,
+                params nvarchar(max) NOT NULL,
+                user_id bigint NULL,
+                created_date datetime2 NOT NULL DEFAULT GETDATE(),
+                last_modified_date datetime2 NOT NULL DEFAULT GETDATE()
+            )""");
+        execute("""
+            CREATE TABLE rules (
+                id bigint IDENTITY(1,1) NOT NULL PRIMARY KEY,
+                action_id bigint NOT NULL REFERENCES actions (id),
+                name nvarchar(100) NOT NULL,
+                definition nvarchar(max) NOT NULL,
+                created_date datetime2 NOT NULL DEFAULT GETDATE(),
+                last_modified_date datetime2 NOT NULL DEFAULT GETDATE()
+            )""");
+        execute("""
+            CREATE TABLE reactions (
+                id bigint IDENTITY(1,1) NOT NULL PRIMARY KEY,
+                rule_id bigint NOT NULL REFERENCES rules (id),
+                name nvarchar(max) NOT NULL,
+                params nvarchar(max) NOT NULL CHECK (params NOT LIKE '%fail.example.com%'),
+                created_date datetime2 NOT NULL DEFAULT GETDATE(),
+                last_modified_date datetime2 NOT NULL DEFAULT GETDATE()
+            )""");
+
+        // the repository is the only piece not under test, it writes through the same client
+        ActionRepository actionRepository = mock(ActionRepository.class);
+        when(actionRepository.save(any())).thenAnswer(invocation -> {
+            ActionEntity action = invocation.getArgument(0);
+            return databaseClient.sql("""
+                    INSERT INTO actions (type, params, user_id) OUTPUT inserted.id VALUES (:type, :params, :userId)
+                    """)
+                    .bind("type", action.getType())
+                    .bind("params", action.getParams())
+                    .bind("userId", action.getUserId())
+                    .map(row -> row.get("id", Long.class))
+                    .one()
+                    .map(action::setId);
+        });
+
+        ReactionService reactionService = new ReactionService(null, databaseClient);
+        RuleService ruleService = new RuleService(null, reactionService, null, databaseClient);
+        TransactionalOperator transactionalOperator =
+                TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+        service = new ActionService(actionRepository, ruleService, null, transactionalOperator);
+    }
+
+    @AfterAll
+    static void cleanup() {
+        if (databaseClient != null) {
+            dropTables();
+        }
+    }
+
+    @BeforeEach
+    void emptyTables() {
+        TABLES.forEach(table -> execute("DELETE FROM " + table));
+    }
+
+    @Test
+    void create_shouldWriteActionRulesAndReactions() {
+        StepVerifier.create(service.create(request("ops@example.com"), 1L))
+                .expectNextMatches(action -> action.getId() != null
+                        && action.getRules().size() == 2
+                        && action.getRules().stream().allMatch(rule -> rule.getId() != null)
+                        && action.getRules().get(1).getReactions().get(0).getId() != null)
+                .verifyComplete();
+
+        assertEquals(1, count("actions"));
+        assertEquals(2, count("rules"));
+        assertEquals(2, count("reactions"));
+    }
+
+    @Test
+    void create_shouldRollBackActionAndRulesWhenReactionInsertFails() {
+        StepVerifier.create(service.create(request("ops@fail.example.com"), 1L))
+                .expectError()
+                .verify();
+
+        assertEquals(0, count("actions"));
+        assertEquals(0, count("rules"));
+        assertEquals(0, count("reactions"));
+    }
+
+    private static ActionRequest request(String secondEmail) {
+        ActionRequest request = new ActionRequest();
+        request.setType("GmailAction");
+        request.setParams(Map.of("client_id", "id", "client_secret", "secret", "refresh_token", "token"));
+        request.setRules(List.of(rule("ops@example.com"), rule(secondEmail)));
+        return request;
+    }
+
+    private static Rule rule(String email) {
+        Reaction reaction = new Reaction();
+        reaction.setName("SendEmailReaction");
+        reaction.setParams(Map.of("email_address", email));
+
+        Rule rule = new Rule();
+        rule.setName("Declarative");
+        rule.setDefinition(Map.of("conditions", List.of(), "alarm_message", "disk full"));
+        rule.setReactions(List.of(reaction));
+        return rule;
+    }
+
+    private static long count(String table) {
+        return databaseClient.sql("SELECT COUNT(*) AS n FROM " + table)
+                .map(row -> row.get("n", Integer.class))
+                .one()
+                .block();
+    }
+
+    private static void dropTables() {
+        TABLES.forEach(table -> execute("DROP TABLE IF EXISTS " + table));
+    }
+
+    private static void execute(String sql) {
+        databaseClient.sql(sql).fetch().rowsUpdated().block();
+    }
+}
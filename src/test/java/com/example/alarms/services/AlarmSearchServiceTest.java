@@ -0,0 +1,25 @@
+package com.example.alarms.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class AlarmSearchServiceTest {
+
+    @Test
+    void wordsBecomePrefixTermsJoinedWithAnd() {
+        assertEquals("\"disk*\" AND \"full*\"", AlarmSearchService.toSearchCondition("disk full"));
+    }
+
+    @Test
+    void searchSyntaxIsNotPassedThrough() {
+        assertEquals("\"a*\" AND \"OR*\" AND \"b*\" AND \"drop*\"", AlarmSearchService.toSearchCondition("\"a\" OR b*; drop"));
+    }
+
+    @Test
+    void inputWithoutWordsHasNoCondition() {
+        assertNull(AlarmSearchService.toSearchCondition(" *() "));
+        assertNull(AlarmSearchService.toSearchCondition(null));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.alarms.services.utils;
+
+import com.example.alarms.dto.ActionRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ActionValidatorTest {
+
+    @Test
+    void gmailAction_shouldRejectBadBufferParams() {
+        Map<String, Object> params = gmailParams();
+        params.put("overflow_policy", "drop_everything");
+        params.put("buffer_capacity", 0);
+        params.put("drain_batch_size", -5);
+        params.put("seen_ids_capacity", 1.5);
+        params.put("schedule_policy", "as_fast_as_possible");
+
+        List<String> errors = ActionValidator.validateCreateUpdateRequest(request("GmailAction", params));
+
+        assertTrue(errors.contains("overflow_policy must be one of: drop_oldest, drop_newest"));
+        assertTrue(errors.contains("buffer_capacity must be between 1 and " + Integer.MAX_VALUE));
+        assertTrue(errors.contains("drain_batch_size must be between 1 and " + Integer.MAX_VALUE));
+        assertTrue(errors.contains("seen_ids_capacity must be a whole number"));
+        assertTrue(errors.contains("schedule_policy must be one of: fixed_rate, fixed_delay, skip_if_busy"));
+    }
+
+    @Test
+    void gmailAction_shouldAcceptValidBufferParams() {
+        Map<String, Object> params = gmailParams();
+        params.put("overflow_policy", "drop_newest");
+        params.put("buffer_capacity", 500);
+        params.put("schedule_policy", "skip-if-busy");
+
+        List<String> errors = ActionValidator.validateCreateUpdateRequest(request("GmailAction", params));
+
+        assertTrue(errors.stream().noneMatch(error -> error.contains("policy") || error.contains("capacity")), errors::toString);
+    }
+
+    private static Map<String, Object> gmailParams() {
+        Map<String, Object> params = new HashMap<>();
+        params.put("client_id", "id");
+        params.put("client_secret", "secret");
+        params.put("refresh_token", "token");
+        return params;
+    }
+
+    private static ActionRequest request(String type, Map<String, Object> params) {
+        ActionRequest request = new ActionRequest();
+        request.setType(type);
+        request.setParams(params);
+        request.setRules(List.of());
+        return request;
+    }
+}